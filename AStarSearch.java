@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Point to point A* search on an unweighted graph.
+ *
+ * Vertices are expanded in order of f = g + h, where g is the number of edges from the source and
+ * h is a lower bound on the number of edges left to the target. The heuristic must be consistent
+ * (h of two neighbors differs by at most 1, and h of the target is 0), then the first time the
+ * target is expanded it has been reached through a shortest path and no vertex is ever expanded
+ * twice. Ties on f are broken towards the larger g, which goes deeper first.
+ *
+ * The scratch arrays are kept between queries and are cleared by bumping a stamp. An instance must
+ * not be used by two threads at once.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class AStarSearch {
+
+    private static final int MAX_G = 0xFFFF; // g and f are packed into 16 bits of a heap key
+
+    private int stamp; // stamp of the current query
+    private int[] seenStamp; // seenStamp[v] == stamp if v has a g value in this query
+    private int[] closedStamp; // closedStamp[v] == stamp if v has been expanded in this query
+    private int[] g; // number of edges from the source on the best path found so far
+    private int[] h; // heuristic value, computed once per query when v is first seen
+    private int[] predecessor; // previous vertex on the best path found so far
+    private long[] heap; // binary min heap of (f, MAX_G - g, vertex) packed into longs
+    private int heapSize;
+    private int target; // target of the last query
+    private int expanded; // number of vertices expanded by the last query
+
+    /**
+     * Constructor for this class. Creates empty scratch space, which grows with the graph.
+     */
+    public AStarSearch() {
+        ensureCapacity(0);
+        heap = new long[16];
+    }
+
+    /**
+     * Grows the scratch arrays to hold a number of ids
+     */
+    private void ensureCapacity(int bound) {
+        if (seenStamp != null && seenStamp.length >= bound) {
+            return;
+        }
+        seenStamp = new int[bound];
+        closedStamp = new int[bound];
+        g = new int[bound];
+        h = new int[bound];
+        predecessor = new int[bound];
+        stamp = 0;
+    }
+
+    /**
+     * Finds the distance between two vertices. The path can then be read with
+     * {@link #getPath(IndexedGraph)}.
+     *
+     * @param graph the graph
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @param heuristic consistent lower bound on the distance, called as
+     *        heuristic.applyAsInt(vertex, target)
+     * @return number of edges on a shortest path, 0 if source equals target, -1 if there is no
+     *         path or if either id has no vertex
+     */
+    public int search(IndexedGraph<?> graph, int source, int target, IntBinaryOperator heuristic) {
+        this.target = -1;
+        this.expanded = 0;
+        if (graph.getVertex(source) == null || graph.getVertex(target) == null) {
+            return -1;
+        }
+        ensureCapacity(graph.getIdBound());
+        if (++stamp == Integer.MAX_VALUE) { // start over before the stamp wraps around
+            Arrays.fill(seenStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            stamp = 1;
+        }
+        this.target = target;
+        heapSize = 0;
+        seenStamp[source] = stamp;
+        g[source] = 0;
+        h[source] = heuristic.applyAsInt(source, target);
+        predecessor[source] = -1;
+        push(h[source], 0, source);
+        while (heapSize > 0) {
+            long key = pop();
+            int vertex = (int) key;
+            int pushedG = MAX_G - (int) ((key >>> 32) & 0xFFFF);
+            if (closedStamp[vertex] == stamp || pushedG != g[vertex]) {
+                continue; // outdated heap entry
+            }
+            closedStamp[vertex] = stamp;
+            expanded++;
+            if (vertex == target) {
+                return g[vertex];
+            }
+            int next = g[vertex] + 1;
+            int degree = graph.getDegree(vertex);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = graph.getNeighborId(vertex, i);
+                if (seenStamp[neighbor] != stamp) {
+                    seenStamp[neighbor] = stamp;
+                    h[neighbor] = heuristic.applyAsInt(neighbor, target);
+                } else if (next >= g[neighbor]) {
+                    continue; // no better than the path already known
+                }
+                g[neighbor] = next;
+                predecessor[neighbor] = vertex;
+                push(next + h[neighbor], next, neighbor);
+            }
+        }
+        this.target = -1;
+        return -1;
+    }
+
+    /**
+     * Gets the path found by the last call to
+     * {@link #search(IndexedGraph, int, int, IntBinaryOperator)}
+     *
+     * @param graph the graph that was searched
+     * @return the vertices from source to target, empty if no path was found
+     */
+    public <E> List<E> getPath(IndexedGraph<E> graph) {
+        List<E> path = new ArrayList<>();
+        if (target < 0) {
+            return path;
+        }
+        for (int v = target; v >= 0; v = predecessor[v]) {
+            path.add(graph.getVertex(v));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Gets the number of vertices expanded by the last search
+     *
+     * @return number of expanded vertices
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    /**
+     * Adds a vertex to the heap
+     */
+    private void push(int f, int gValue, int vertex) {
+        if (f > MAX_G || gValue > MAX_G) {
+            throw new IllegalStateException("path too long for the search: " + gValue);
+        }
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long key = ((long) f << 48) | ((long) (MAX_G - gValue) << 32) | vertex;
+        int i = heapSize++;
+        while (i > 0 && heap[(i - 1) / 2] > key) { // move up past larger parents
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = key;
+    }
+
+    /**
+     * Removes the smallest key from the heap
+     */
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (2 * i + 1 < heapSize) { // move the last key down past smaller children
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= last) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point to point shortest path search on an unweighted graph, without any precomputation.
+ *
+ * Breadth first searches are run from both ends at the same time, always growing the smaller of
+ * the two frontiers by one whole level, until the two searches touch. A single query therefore
+ * only labels the vertices close to either end instead of the whole graph.
+ *
+ * The scratch arrays are kept between queries and are cleared by bumping a stamp, so a query
+ * costs time only for the vertices it labels. An instance must not be used by two threads at
+ * once.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class BidirectionalSearch {
+
+    private int stamp; // stamp of the current query
+    private int[] forwardStamp; // forwardStamp[v] == stamp if v was labeled from the source
+    private int[] backwardStamp; // backwardStamp[v] == stamp if v was labeled from the target
+    private int[] forwardDistance; // distance from the source
+    private int[] backwardDistance; // distance to the target
+    private int[] forwardPredecessor; // previous vertex on the path from the source
+    private int[] backwardSuccessor; // next vertex on the path to the target
+    private int[] forwardQueue; // vertices labeled from the source, level by level
+    private int[] backwardQueue; // vertices labeled from the target, level by level
+    private int meetForward; // last vertex of the forward half of the best path found
+    private int meetBackward; // first vertex of the backward half of the best path found
+    private int labeled; // number of vertices labeled by the last query
+
+    /**
+     * Constructor for this class. Creates empty scratch space, which grows with the graph.
+     */
+    public BidirectionalSearch() {
+        ensureCapacity(0);
+    }
+
+    /**
+     * Grows the scratch arrays to hold a number of ids
+     */
+    private void ensureCapacity(int bound) {
+        if (forwardStamp != null && forwardStamp.length >= bound) {
+            return;
+        }
+        forwardStamp = new int[bound];
+        backwardStamp = new int[bound];
+        forwardDistance = new int[bound];
+        backwardDistance = new int[bound];
+        forwardPredecessor = new int[bound];
+        backwardSuccessor = new int[bound];
+        forwardQueue = new int[bound];
+        backwardQueue = new int[bound];
+        stamp = 0;
+    }
+
+    /**
+     * Finds the distance between two vertices. The path can then be read with
+     * {@link #getPath(IndexedGraph)}.
+     *
+     * @param graph the graph
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return number of edges on a shortest path, 0 if source equals target, -1 if there is no
+     *         path or if either id has no vertex
+     */
+    public int search(IndexedGraph<?> graph, int source, int target) {
+        meetForward = -1;
+        meetBackward = -1;
+        labeled = 0;
+        if (graph.getVertex(source) == null || graph.getVertex(target) == null) {
+            return -1;
+        }
+        ensureCapacity(graph.getIdBound());
+        if (++stamp == Integer.MAX_VALUE) { // start over before the stamp wraps around
+            Arrays.fill(forwardStamp, 0);
+            Arrays.fill(backwardStamp, 0);
+            stamp = 1;
+        }
+        forwardStamp[source] = stamp;
+        forwardDistance[source] = 0;
+        forwardPredecessor[source] = -1;
+        backwardStamp[target] = stamp;
+        backwardDistance[target] = 0;
+        backwardSuccessor[target] = -1;
+        forwardQueue[0] = source;
+        backwardQueue[0] = target;
+        labeled = source == target ? 1 : 2;
+        if (source == target) {
+            meetForward = source;
+            return 0;
+        }
+        int forwardHead = 0; // the current forward level is forwardQueue[forwardHead..forwardTail)
+        int forwardTail = 1;
+        int backwardHead = 0;
+        int backwardTail = 1;
+        int best = Integer.MAX_VALUE;
+        while (forwardHead < forwardTail && backwardHead < backwardTail) {
+            boolean forward = forwardTail - forwardHead <= backwardTail - backwardHead;
+            int[] queue = forward ? forwardQueue : backwardQueue;
+            int[] ownStamp = forward ? forwardStamp : backwardStamp;
+            int[] ownDistance = forward ? forwardDistance : backwardDistance;
+            int[] ownLink = forward ? forwardPredecessor : backwardSuccessor;
+            int[] otherStamp = forward ? backwardStamp : forwardStamp;
+            int[] otherDistance = forward ? backwardDistance : forwardDistance;
+            int head = forward ? forwardHead : backwardHead;
+            int levelEnd = forward ? forwardTail : backwardTail;
+            int tail = levelEnd;
+            for (; head < levelEnd; head++) { // grow the frontier by one whole level
+                int vertex = queue[head];
+                int degree = graph.getDegree(vertex);
+                for (int i = 0; i < degree; i++) {
+                    int neighbor = graph.getNeighborId(vertex, i);
+                    if (otherStamp[neighbor] == stamp) { // the two searches touch
+                        int length = ownDistance[vertex] + 1 + otherDistance[neighbor];
+                        if (length < best) {
+                            best = length;
+                            meetForward = forward ? vertex : neighbor;
+                            meetBackward = forward ? neighbor : vertex;
+                        }
+                    }
+                    if (ownStamp[neighbor] != stamp) {
+                        ownStamp[neighbor] = stamp;
+                        ownDistance[neighbor] = ownDistance[vertex] + 1;
+                        ownLink[neighbor] = vertex;
+                        queue[tail++] = neighbor;
+                        labeled++;
+                    }
+                }
+            }
+            if (forward) {
+                forwardHead = head;
+                forwardTail = tail;
+            } else {
+                backwardHead = head;
+                backwardTail = tail;
+            }
+            if (best != Integer.MAX_VALUE) {
+                return best; // every shorter path would have touched in an earlier level
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the path found by the last call to {@link #search(IndexedGraph, int, int)}
+     *
+     * @param graph the graph that was searched
+     * @return the vertices from source to target, empty if no path was found
+     */
+    public <E> List<E> getPath(IndexedGraph<E> graph) {
+        List<E> path = new ArrayList<>();
+        if (meetForward < 0) {
+            return path;
+        }
+        for (int v = meetForward; v >= 0; v = forwardPredecessor[v]) {
+            path.add(graph.getVertex(v));
+        }
+        Collections.reverse(path);
+        for (int v = meetBackward; v >= 0; v = backwardSuccessor[v]) {
+            path.add(graph.getVertex(v));
+        }
+        return path;
+    }
+
+    /**
+     * Gets the number of vertices labeled by the last search, which shows how much of the graph
+     * it touched
+     *
+     * @return number of labeled vertices
+     */
+    public int getLabeledCount() {
+        return labeled;
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.Arrays;
+
+/**
+ * Single source shortest paths for unweighted graphs.
+ *
+ * The search walks the int ids of an {@link IndexedGraph}, so it runs in O(V+E) using only
+ * primitive arrays and never hashes or compares vertices. Every edge has weight 1, so the first time a vertex is
+ * reached it is reached through a shortest path.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class BreadthFirstSearch {
+
+    /**
+     * Marks a vertex that was not reached, in both the distance and the predecessor arrays
+     */
+    public static final int UNREACHED = -1;
+
+    /**
+     * Runs a breadth first search from source.
+     *
+     * @param graph the graph, arrays below need room for {@link IndexedGraph#getIdBound()} ids
+     * @param source id of the starting vertex
+     * @param distance filled with the number of edges from source, or {@link #UNREACHED}
+     * @param predecessor filled with the previous vertex on a shortest path from source, or
+     *        {@link #UNREACHED} for the source and for vertices that were not reached
+     * @param queue scratch array with room for every vertex
+     * @return the number of vertices reached, including the source
+     */
+    public static int search(IndexedGraph<?> graph, int source, int[] distance, int[] predecessor,
+        int[] queue) {
+        int bound = graph.getIdBound();
+        Arrays.fill(distance, 0, bound, UNREACHED);
+        Arrays.fill(predecessor, 0, bound, UNREACHED);
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int vertex = queue[head++];
+            int next = distance[vertex] + 1;
+            int degree = graph.getDegree(vertex);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = graph.getNeighborId(vertex, i);
+                if (distance[neighbor] == UNREACHED) { // first visit is along a shortest path
+                    distance[neighbor] = next;
+                    predecessor[neighbor] = vertex;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,446 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Undirected and unweighted graph that keeps its adjacency as plain int arrays.
+ *
+ * Every vertex is interned as a dense int id, as in {@link Graph}, and the neighbors of an id are
+ * one int array of neighbor ids. Most words have only a few neighbors, so while the degree of a
+ * vertex is at most {@link #HASH_THRESHOLD} its array is kept sorted and searched by binary
+ * search. Past the threshold the vertex also gets an open addressing table of positions in its
+ * array, so lookups stay O(1) for the few vertices with many neighbors. An edge then costs two ints
+ * plus the unused room of the arrays, instead of two {@link java.util.HashSet} entries.
+ *
+ * Ids of removed vertices are not given out again, so the id of a vertex never changes.
+ *
+ * @param <E> type of a vertex
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class CompactGraph<E> implements IndexedGraph<E> {
+
+    /**
+     * Highest degree kept as a sorted array only, a vertex with more neighbors gets a hash index
+     */
+    public static final int HASH_THRESHOLD = 32;
+
+    private static final int EMPTY = -1; // free slot of a hash index
+
+    private Map<E, Integer> ids; // id of every vertex in the graph
+    private Object[] vertexOf; // vertex of every id, null once the vertex is removed
+    private int bound; // number of ids given out
+    private int[][] neighbors; // neighbor ids of every id, the first degrees[id] are used
+    private int[] degrees; // number of neighbors of every id
+    private int[][] slots; // positions in neighbors[id] by hash of the neighbor, null if unsorted
+    private int edgeCount; // number of undirected edges
+
+    /**
+     * Constructor for this class. Creates an empty graph.
+     */
+    public CompactGraph() {
+        this(16);
+    }
+
+    /**
+     * Constructor for this class. Creates an empty graph with room for a number of vertices.
+     *
+     * @param expectedVertices number of vertices expected
+     */
+    public CompactGraph(int expectedVertices) {
+        int capacity = Math.max(16, expectedVertices);
+        this.ids = new HashMap<>(capacity * 4 / 3 + 1);
+        this.vertexOf = new Object[capacity];
+        this.neighbors = new int[capacity][];
+        this.degrees = new int[capacity];
+        this.slots = new int[capacity][];
+    }
+
+    /**
+     * Copies another graph, keeping its ids. The neighbor arrays of the copy have no unused room.
+     *
+     * @param graph the graph to copy
+     * @return the copy
+     */
+    public static <E> CompactGraph<E> copyOf(IndexedGraph<E> graph) {
+        CompactGraph<E> copy = new CompactGraph<>(graph.getIdBound());
+        copy.bound = graph.getIdBound();
+        int directed = 0;
+        for (int id = 0; id < copy.bound; id++) {
+            E vertex = graph.getVertex(id);
+            if (vertex == null) {
+                continue;
+            }
+            copy.vertexOf[id] = vertex;
+            copy.ids.put(vertex, id);
+            int degree = graph.getDegree(id);
+            int[] list = new int[degree];
+            for (int i = 0; i < degree; i++) {
+                list[i] = graph.getNeighborId(id, i);
+            }
+            copy.neighbors[id] = list;
+            copy.degrees[id] = degree;
+            if (degree > HASH_THRESHOLD) {
+                copy.buildIndex(id);
+            } else {
+                Arrays.sort(list);
+            }
+            directed += degree;
+        }
+        copy.edgeCount = directed / 2;
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E addVertex(E vertex) {
+        if (vertex == null || ids.containsKey(vertex)) {
+            return null; // null or duplicate vertex
+        }
+        if (bound == vertexOf.length) { // grow the id indexed arrays
+            int capacity = bound * 2;
+            vertexOf = Arrays.copyOf(vertexOf, capacity);
+            neighbors = Arrays.copyOf(neighbors, capacity);
+            degrees = Arrays.copyOf(degrees, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+        }
+        int id = bound++;
+        ids.put(vertex, id);
+        vertexOf[id] = vertex;
+        neighbors[id] = new int[2];
+        return vertex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E removeVertex(E vertex) {
+        int id = getId(vertex);
+        if (id < 0) {
+            return null; // null or missing vertex
+        }
+        for (int i = 0; i < degrees[id]; i++) { // edges are undirected, only neighbors point back
+            removeNeighbor(neighbors[id][i], id);
+        }
+        edgeCount -= degrees[id];
+        ids.remove(vertex);
+        vertexOf[id] = null;
+        neighbors[id] = null;
+        degrees[id] = 0;
+        slots[id] = null;
+        return vertex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addEdge(E vertex1, E vertex2) {
+        int id1 = getId(vertex1);
+        int id2 = getId(vertex2);
+        if (id1 < 0 || id2 < 0 || id1 == id2) {
+            return false; // both the vertices should exist and be different
+        }
+        if (addNeighbor(id1, id2)) { // adding an existing edge does not change the graph
+            addNeighbor(id2, id1);
+            edgeCount++;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeEdge(E vertex1, E vertex2) {
+        int id1 = getId(vertex1);
+        int id2 = getId(vertex2);
+        if (id1 < 0 || id2 < 0 || id1 == id2) {
+            return false; // both the vertices should exist and be different
+        }
+        if (removeNeighbor(id1, id2)) {
+            removeNeighbor(id2, id1);
+            edgeCount--;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAdjacent(E vertex1, E vertex2) {
+        int id1 = getId(vertex1);
+        int id2 = getId(vertex2);
+        if (id1 < 0 || id2 < 0 || id1 == id2) {
+            return false; // both the vertices should exist and be different
+        }
+        return indexOf(id1, id2) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<E> getNeighbors(E vertex) {
+        int id = getId(vertex);
+        if (id < 0) {
+            return null; // if vertex not exists, return null
+        }
+        return new AbstractList<E>() { // read only view over the neighbor ids of the vertex
+            @Override
+            public E get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+                }
+                return getVertex(neighbors[id][index]);
+            }
+
+            @Override
+            public int size() {
+                return degrees[id];
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<E> getAllVertices() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getId(E vertex) {
+        if (vertex == null) {
+            return -1;
+        }
+        Integer id = ids.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E getVertex(int id) {
+        if (id < 0 || id >= bound) {
+            return null;
+        }
+        return (E) vertexOf[id];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIdBound() {
+        return bound;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDegree(int id) {
+        if (id < 0 || id >= bound) {
+            return 0;
+        }
+        return degrees[id];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNeighborId(int id, int index) {
+        return neighbors[id][index];
+    }
+
+    /**
+     * Get the number of vertices in the graph
+     *
+     * @return number of vertices
+     */
+    public int getVertexCount() {
+        return ids.size();
+    }
+
+    /**
+     * Get the number of undirected edges in the graph
+     *
+     * @return number of edges
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Shrinks every neighbor array to its degree, giving back the room kept for new neighbors
+     */
+    public void trimToSize() {
+        for (int id = 0; id < bound; id++) {
+            if (neighbors[id] != null && neighbors[id].length > degrees[id]) {
+                neighbors[id] = Arrays.copyOf(neighbors[id], degrees[id]);
+            }
+        }
+    }
+
+    /**
+     * Finds a neighbor in the neighbor array of an id
+     *
+     * @param id the vertex
+     * @param neighbor id of the neighbor
+     * @return position of the neighbor, or a negative number if it is not a neighbor
+     */
+    private int indexOf(int id, int neighbor) {
+        int[] index = slots[id];
+        if (index == null) {
+            return Arrays.binarySearch(neighbors[id], 0, degrees[id], neighbor);
+        }
+        int mask = index.length - 1;
+        for (int slot = hash(neighbor) & mask; index[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (neighbors[id][index[slot]] == neighbor) {
+                return index[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a neighbor to the neighbor array of an id
+     *
+     * @return false if it was a neighbor already
+     */
+    private boolean addNeighbor(int id, int neighbor) {
+        int position = indexOf(id, neighbor);
+        if (position >= 0) {
+            return false;
+        }
+        int degree = degrees[id];
+        int[] list = neighbors[id];
+        if (degree == list.length) {
+            list = neighbors[id] = Arrays.copyOf(list, Math.max(2, degree * 2));
+        }
+        if (slots[id] == null) { // keep the array sorted: shift the larger ids up by one
+            int insert = -position - 1;
+            System.arraycopy(list, insert, list, insert + 1, degree - insert);
+            list[insert] = neighbor;
+            degrees[id]++;
+            if (degrees[id] > HASH_THRESHOLD) {
+                buildIndex(id);
+            }
+        } else {
+            list[degree] = neighbor;
+            degrees[id]++;
+            if (2 * degrees[id] > slots[id].length) {
+                buildIndex(id); // keep the index at most half full
+            } else {
+                insertSlot(slots[id], neighbor, degree);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes a neighbor from the neighbor array of an id
+     *
+     * @return false if it was not a neighbor
+     */
+    private boolean removeNeighbor(int id, int neighbor) {
+        int position = indexOf(id, neighbor);
+        if (position < 0) {
+            return false;
+        }
+        int[] list = neighbors[id];
+        int last = --degrees[id];
+        if (slots[id] == null) { // keep the array sorted: shift the larger ids down by one
+            System.arraycopy(list, position + 1, list, position, last - position);
+            return true;
+        }
+        deleteSlot(id, neighbor);
+        if (position != last) { // move the last neighbor into the hole
+            list[position] = list[last];
+            int[] index = slots[id];
+            int mask = index.length - 1;
+            int slot = hash(list[position]) & mask;
+            while (index[slot] != last) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = position;
+        }
+        if (degrees[id] <= HASH_THRESHOLD / 2) { // few neighbors left, back to a sorted array
+            slots[id] = null;
+            Arrays.sort(list, 0, degrees[id]);
+        }
+        return true;
+    }
+
+    /**
+     * Makes a new hash index for the neighbors of an id, with at least twice as many slots as
+     * neighbors
+     */
+    private void buildIndex(int id) {
+        int capacity = Integer.highestOneBit(Math.max(4, degrees[id]) * 4 - 1);
+        int[] index = new int[capacity];
+        Arrays.fill(index, EMPTY);
+        for (int i = 0; i < degrees[id]; i++) {
+            insertSlot(index, neighbors[id][i], i);
+        }
+        slots[id] = index;
+    }
+
+    /**
+     * Puts the position of a neighbor into the first free slot from the hash of the neighbor
+     */
+    private static void insertSlot(int[] index, int neighbor, int position) {
+        int mask = index.length - 1;
+        int slot = hash(neighbor) & mask;
+        while (index[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position;
+    }
+
+    /**
+     * Frees the slot of a neighbor. The later slots of its probe run are moved back into the
+     * hole, so lookups never need to skip deleted slots.
+     */
+    private void deleteSlot(int id, int neighbor) {
+        int[] index = slots[id];
+        int[] list = neighbors[id];
+        int mask = index.length - 1;
+        int hole = hash(neighbor) & mask;
+        while (list[index[hole]] != neighbor) {
+            hole = (hole + 1) & mask;
+        }
+        for (int slot = (hole + 1) & mask; index[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = hash(list[index[slot]]) & mask;
+            // move the entry back unless its home lies cyclically in (hole, slot]
+            boolean stays = hole <= slot ? hole < home && home <= slot : hole < home || home <= slot;
+            if (!stays) {
+                index[hole] = index[slot];
+                hole = slot;
+            }
+        }
+        index[hole] = EMPTY;
+    }
+
+    /**
+     * Spreads the bits of an id over the slots
+     */
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
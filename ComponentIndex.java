@@ -0,0 +1,241 @@
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Connected components of a graph, kept up to date by listening to its changes.
+ *
+ * The components are a union-find forest over the vertex ids, with union by size and path
+ * halving. An added edge joins the components of its ends, so adding words and edges costs
+ * almost nothing. A union-find can not split a component, so a removed edge or vertex only marks
+ * the index as stale, and the forest is built again from the graph the next time it is read.
+ *
+ * The forest changes while it is read, so it must only be used by the thread changing the graph.
+ * {@link #freeze(IndexedGraph)} gives an immutable {@link Components} which any number of threads
+ * can read.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class ComponentIndex implements GraphListener {
+
+    /**
+     * Immutable component of every vertex of a graph, numbered from 0
+     */
+    public static class Components {
+
+        private int[] componentOf; // component of every id, -1 for unused ids
+        private int[] sizes; // number of vertices of every component
+
+        /**
+         * Constructor for this class. The arrays are used as they are.
+         *
+         * @param componentOf component of every id, -1 for unused ids
+         * @param sizes number of vertices of every component
+         */
+        private Components(int[] componentOf, int[] sizes) {
+            this.componentOf = componentOf;
+            this.sizes = sizes;
+        }
+
+        /**
+         * Gets the component of a vertex
+         *
+         * @param id id of the vertex
+         * @return the component, -1 if no vertex has the id
+         */
+        public int getComponent(int id) {
+            return id < 0 || id >= componentOf.length ? -1 : componentOf[id];
+        }
+
+        /**
+         * Checks whether there is a path between two vertices
+         *
+         * @param id1 id of the first vertex
+         * @param id2 id of the second vertex
+         * @return true if both vertices exist and are in the same component
+         */
+        public boolean isConnected(int id1, int id2) {
+            int component = getComponent(id1);
+            return component >= 0 && component == getComponent(id2);
+        }
+
+        /**
+         * Gets the number of components, a vertex with no edge is a component by itself
+         *
+         * @return number of components
+         */
+        public int getComponentCount() {
+            return sizes.length;
+        }
+
+        /**
+         * Gets the number of vertices of a component
+         *
+         * @param component the component
+         * @return number of vertices
+         */
+        public int getSize(int component) {
+            return sizes[component];
+        }
+
+        /**
+         * Gets how many components there are of every size
+         *
+         * @return component size -> number of components of that size, by increasing size
+         */
+        public SortedMap<Integer, Integer> getSizeDistribution() {
+            SortedMap<Integer, Integer> distribution = new TreeMap<>();
+            for (int size : sizes) {
+                distribution.merge(size, 1, Integer::sum);
+            }
+            return distribution;
+        }
+    }
+
+    private int[] parent; // parent of every id in the forest, roots are their own parent
+    private int[] size; // number of vertices under every root
+    private boolean stale; // whether a removal happened since the forest was built
+
+    /**
+     * Constructor for this class. Creates a stale index, which is built from the graph the first
+     * time it is frozen.
+     */
+    public ComponentIndex() {
+        this.parent = new int[0];
+        this.size = new int[0];
+        this.stale = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void vertexAdded(int id) {
+        if (stale) {
+            return; // the next rebuild sees the vertex
+        }
+        if (id >= parent.length) {
+            int capacity = Math.max(16, Math.max(id + 1, parent.length * 2));
+            parent = Arrays.copyOf(parent, capacity);
+            size = Arrays.copyOf(size, capacity);
+        }
+        parent[id] = id;
+        size[id] = 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void vertexRemoved(int id) {
+        stale = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void edgeAdded(int id1, int id2) {
+        if (!stale) {
+            union(id1, id2);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void edgeRemoved(int id1, int id2) {
+        stale = true;
+    }
+
+    /**
+     * Gets the root of the tree of a vertex, halving the path on the way
+     */
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * Joins the trees of two vertices, the smaller tree goes under the root of the larger one
+     */
+    private void union(int id1, int id2) {
+        int root1 = find(id1);
+        int root2 = find(id2);
+        if (root1 == root2) {
+            return;
+        }
+        if (size[root1] < size[root2]) {
+            int swap = root1;
+            root1 = root2;
+            root2 = swap;
+        }
+        parent[root2] = root1;
+        size[root1] += size[root2];
+    }
+
+    /**
+     * Builds the forest again from every vertex and edge of the graph
+     *
+     * @param graph the graph listened to
+     */
+    private void rebuild(IndexedGraph<?> graph) {
+        int bound = graph.getIdBound();
+        parent = new int[bound];
+        size = new int[bound];
+        for (int id = 0; id < bound; id++) {
+            parent[id] = id;
+            size[id] = 1;
+        }
+        for (int id = 0; id < bound; id++) {
+            int degree = graph.getDegree(id);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = graph.getNeighborId(id, i);
+                if (id < neighbor) {
+                    union(id, neighbor);
+                }
+            }
+        }
+        stale = false;
+    }
+
+    /**
+     * Gets the components of the graph as they are now, building the forest again first if a
+     * vertex or an edge was removed. Takes O(V).
+     *
+     * @param graph the graph listened to
+     * @return the components
+     */
+    public Components freeze(IndexedGraph<?> graph) {
+        if (stale) {
+            rebuild(graph);
+        }
+        int bound = graph.getIdBound();
+        int[] componentOf = new int[bound];
+        int[] componentOfRoot = new int[bound];
+        Arrays.fill(componentOfRoot, -1);
+        int count = 0;
+        for (int id = 0; id < bound; id++) {
+            if (graph.getVertex(id) == null) {
+                componentOf[id] = -1;
+            } else {
+                int root = find(id);
+                if (componentOfRoot[root] < 0) {
+                    componentOfRoot[root] = count++;
+                }
+                componentOf[id] = componentOfRoot[root];
+            }
+        }
+        int[] sizes = new int[count];
+        for (int component : componentOf) {
+            if (component >= 0) {
+                sizes[component]++;
+            }
+        }
+        return new Components(componentOf, sizes);
+    }
+}
@@ -0,0 +1,216 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a graph in compressed sparse row form.
+ *
+ * The neighbors of the vertex with id v are targets[offsets[v]] to targets[offsets[v+1]-1], so
+ * the whole adjacency is two int arrays: one int per edge direction and one per vertex. Vertex ids
+ * are the ids of the {@link Graph} the snapshot was taken from. The snapshot can be read by any
+ * number of threads, and every method that would change it throws
+ * {@link UnsupportedOperationException}.
+ *
+ * @param <E> type of a vertex
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class CsrGraph<E> implements IndexedGraph<E> {
+
+    private Object[] vertexOf; // vertex of every id, null for ids of removed vertices
+    private Map<E, Integer> ids; // id of every vertex
+    private List<E> allVertices; // the vertices in id order
+    private int[] offsets; // neighbors of id v start at offsets[v] and end before offsets[v+1]
+    private int[] targets; // neighbor ids of all the vertices one after another
+
+    /**
+     * Constructor for this class. The arrays are used as they are, they must not be changed
+     * afterwards.
+     *
+     * @param vertexOf vertex of every id, null for unused ids
+     * @param offsets start of the neighbors of every id, with one extra entry at the end
+     * @param targets neighbor ids of all the vertices one after another
+     */
+    public CsrGraph(Object[] vertexOf, int[] offsets, int[] targets) {
+        this.vertexOf = vertexOf;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.ids = new HashMap<>(vertexOf.length * 4 / 3 + 1);
+        List<E> vertices = new ArrayList<>(vertexOf.length);
+        for (int id = 0; id < vertexOf.length; id++) {
+            E vertex = getVertex(id);
+            if (vertex != null) {
+                ids.put(vertex, id);
+                vertices.add(vertex);
+            }
+        }
+        this.allVertices = Collections.unmodifiableList(vertices);
+    }
+
+    /**
+     * Always throws, the snapshot is read only
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public E addVertex(E vertex) {
+        throw new UnsupportedOperationException("cannot add a vertex to a read only graph snapshot");
+    }
+
+    /**
+     * Always throws, the snapshot is read only
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public E removeVertex(E vertex) {
+        throw new UnsupportedOperationException(
+            "cannot remove a vertex from a read only graph snapshot");
+    }
+
+    /**
+     * Always throws, the snapshot is read only
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addEdge(E vertex1, E vertex2) {
+        throw new UnsupportedOperationException("cannot add an edge to a read only graph snapshot");
+    }
+
+    /**
+     * Always throws, the snapshot is read only
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeEdge(E vertex1, E vertex2) {
+        throw new UnsupportedOperationException(
+            "cannot remove an edge from a read only graph snapshot");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAdjacent(E vertex1, E vertex2) {
+        int id1 = getId(vertex1);
+        int id2 = getId(vertex2);
+        if (id1 < 0 || id2 < 0 || id1 == id2) {
+            return false; // both the vertices should exist and be different
+        }
+        for (int i = offsets[id1]; i < offsets[id1 + 1]; i++) {
+            if (targets[i] == id2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<E> getNeighbors(E vertex) {
+        int id = getId(vertex);
+        if (id < 0) {
+            return null; // if vertex not exists, return null
+        }
+        int from = offsets[id];
+        int size = offsets[id + 1] - from;
+        return new AbstractList<E>() { // read only view over the targets of the vertex
+            @Override
+            public E get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+                }
+                return getVertex(targets[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<E> getAllVertices() {
+        return allVertices;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getId(E vertex) {
+        if (vertex == null) {
+            return -1;
+        }
+        Integer id = ids.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E getVertex(int id) {
+        if (id < 0 || id >= vertexOf.length) {
+            return null;
+        }
+        return (E) vertexOf[id];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIdBound() {
+        return vertexOf.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDegree(int id) {
+        if (id < 0 || id >= vertexOf.length) {
+            return 0;
+        }
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNeighborId(int id, int index) {
+        return targets[offsets[id] + index];
+    }
+
+    /**
+     * Get the number of vertices in the snapshot
+     *
+     * @return number of vertices
+     */
+    public int getVertexCount() {
+        return allVertices.size();
+    }
+
+    /**
+     * Get the number of undirected edges in the snapshot
+     *
+     * @return number of edges
+     */
+    public int getEdgeCount() {
+        return targets.length / 2;
+    }
+}
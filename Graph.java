@@ -1,17 +1,30 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Undirected and unweighted graph implementation
  * 
+ * Every vertex is also interned as a dense int id when it is added, and the neighbors are kept as
+ * lists of ids next to the sets of vertices, so algorithms can walk the graph on ints through
+ * {@link IndexedGraph}. Ids of removed vertices are not given out again, so the id of a vertex
+ * never changes.
+ * 
+ * The read methods only look up the maps and never write to them, so they make no garbage and
+ * can be called from several threads as long as nothing changes the graph at the same time.
+ * 
  * @param <E> type of a vertex
  * 
  * @author Chentao Wang (cwang556@wisc.edu)
  * 
  */
-public class Graph<E> implements GraphADT<E> {
+public class Graph<E> implements IndexedGraph<E> {
     
 
     /**
@@ -19,12 +32,157 @@ public class Graph<E> implements GraphADT<E> {
      */
     public Set<E> vertices;
     public Map<E, HashSet<E>> edges;
+    private volatile int version; // incremented on every successful mutation of the graph
+    private Map<E, Integer> ids; // id of every vertex in the graph
+    private ArrayList<E> idToVertex; // vertex of every id, null once the vertex is removed
+    private int[][] neighborIds; // ids of the neighbors of every id, first degrees[id] are used
+    private int[] degrees; // number of neighbors of every id
+    private CsrGraph<E> frozen; // last snapshot returned by freeze()
+    private int frozenVersion; // version of the graph the snapshot was taken at
+    private List<GraphListener> listeners; // notified of every change
     
     
 
     public Graph() {
-        vertices = new HashSet<E>();
-        edges = new HashMap<E, HashSet<E>>();
+        this(16);
+    }
+
+    /**
+     * Create an empty graph with room for a number of vertices before any map has to grow
+     * 
+     * @param expectedVertices number of vertices expected
+     */
+    private Graph(int expectedVertices) {
+        int capacity = hashCapacity(expectedVertices);
+        vertices = new HashSet<E>(capacity);
+        edges = new HashMap<E, HashSet<E>>(capacity);
+        ids = new HashMap<E, Integer>(capacity);
+        idToVertex = new ArrayList<E>(expectedVertices);
+        neighborIds = new int[Math.max(16, expectedVertices)][];
+        degrees = new int[Math.max(16, expectedVertices)];
+        listeners = new ArrayList<GraphListener>();
+    }
+
+    /**
+     * Get the capacity a hash map or set needs to hold a number of entries without growing
+     * 
+     * @param expected number of entries
+     * @return the capacity for the default load factor
+     */
+    private static int hashCapacity(int expected) {
+        return Math.max(16, (int)(expected/0.75f)+1);
+    }
+
+    /**
+     * Builds a new graph in bulk. The maps are sized up front from the expected number of
+     * vertices. Edges are added by the ids the builder gave out and only recorded as pairs of
+     * ints, with no lookups and only a range check of the ids. {@link #build()} then counts the
+     * degree of every vertex and fills neighbor sets and id lists made with exactly the room they
+     * need, skipping loops and repeated edges. No listener can be registered before the graph is
+     * built, and its version only counts the build itself.
+     * 
+     * @param <E> type of a vertex
+     */
+    public static class Builder<E> {
+        private Graph<E> graph; // the graph being built, null once built
+        private int[] edgeIds; // both ids of every edge, one pair after another
+        private int edgeCount; // number of edges recorded
+
+        /**
+         * Create a builder
+         * 
+         * @param expectedVertices number of vertices expected
+         * @param expectedEdges number of undirected edges expected
+         */
+        public Builder(int expectedVertices, int expectedEdges) {
+            graph = new Graph<E>(expectedVertices);
+            edgeIds = new int[2*Math.max(16, expectedEdges)];
+        }
+
+        /**
+         * Add a vertex, or find the id of a vertex already added
+         * 
+         * @param vertex the vertex
+         * @return the id of the vertex in the built graph
+         * @throws IllegalArgumentException if vertex is null
+         * @throws IllegalStateException if the graph was already built
+         */
+        public int addVertex(E vertex) {
+            if(vertex==null)throw new IllegalArgumentException("vertex is null");
+            Integer id = graph().ids.get(vertex);
+            if(id!=null)return id;
+            graph.vertices.add(vertex);
+            return graph.internVertex(vertex);
+        }
+
+        /**
+         * Add an undirected edge between two vertices of the builder. Loops and edges added before
+         * are skipped when the graph is built.
+         * 
+         * @param id1 id of the first vertex, as returned by {@link #addVertex(Object)}
+         * @param id2 id of the second vertex
+         * @return this builder
+         * @throws IllegalArgumentException if an id was not given out by this builder
+         * @throws IllegalStateException if the graph was already built
+         */
+        public Builder<E> addEdge(int id1, int id2) {
+            int bound = graph().idToVertex.size();
+            if(id1<0||id1>=bound)throw new IllegalArgumentException("unknown vertex id: "+id1);
+            if(id2<0||id2>=bound)throw new IllegalArgumentException("unknown vertex id: "+id2);
+            if(2*edgeCount==edgeIds.length)edgeIds = Arrays.copyOf(edgeIds, edgeIds.length*2);
+            edgeIds[2*edgeCount] = id1;
+            edgeIds[2*edgeCount+1] = id2;
+            edgeCount++;
+            return this;
+        }
+
+        /**
+         * Finish the graph. The builder can't be used afterwards.
+         * 
+         * @return the graph
+         * @throws IllegalStateException if the graph was already built
+         */
+        public Graph<E> build() {
+            Graph<E> built = graph();
+            int bound = built.idToVertex.size();
+            int[] degree = new int[bound]; // upper bound, repeated edges are counted too
+            for(int i=0; i<2*edgeCount; i+=2) {
+                if(edgeIds[i]!=edgeIds[i+1]) {
+                    degree[edgeIds[i]]++;
+                    degree[edgeIds[i+1]]++;
+                }
+            }
+            List<HashSet<E>> sets = new ArrayList<HashSet<E>>(bound);
+            for(int id=0; id<bound; id++) {
+                HashSet<E> set = null; // vertices without edges get no set, as with addEdge
+                if(degree[id]>0) {
+                    set = new HashSet<E>((int)(degree[id]/0.75f)+1);
+                    built.edges.put(built.idToVertex.get(id), set);
+                    built.neighborIds[id] = new int[degree[id]];
+                }
+                sets.add(set);
+            }
+            for(int i=0; i<2*edgeCount; i+=2) {
+                int id1 = edgeIds[i];
+                int id2 = edgeIds[i+1];
+                if(id1==id2||!sets.get(id1).add(built.idToVertex.get(id2)))continue; // loop or repeat
+                sets.get(id2).add(built.idToVertex.get(id1));
+                built.neighborIds[id1][built.degrees[id1]++] = id2;
+                built.neighborIds[id2][built.degrees[id2]++] = id1;
+            }
+            built.version++;
+            graph = null;
+            edgeIds = null;
+            return built;
+        }
+
+        /**
+         * Get the graph being built
+         */
+        private Graph<E> graph() {
+            if(graph==null)throw new IllegalStateException("the graph was already built");
+            return graph;
+        }
     }
 
     /**
@@ -36,6 +194,9 @@ public class Graph<E> implements GraphADT<E> {
         else if(vertices.contains(vertex))return null;  // return null if vertex is duplicate
         else {
             vertices.add(vertex);
+            int id = internVertex(vertex);
+            version++;
+            for(GraphListener listener : listeners)listener.vertexAdded(id);
             return vertex;           
         }
     }
@@ -49,16 +210,76 @@ public class Graph<E> implements GraphADT<E> {
         else if(!vertices.contains(vertex))return null;  // return null if vertex not exists
         else {
             vertices.remove(vertex); // remove vertex from vertices
-            if(edges.containsKey(vertex)) {
-                edges.remove(vertex); // remove vertex from the edges                
-                for(HashSet<E> set : edges.values()) { 
-                    set.remove(vertex);
-                }
-            }           
+            int id = ids.remove(vertex);
+            int[] neighbors = Arrays.copyOf(neighborIds[id], degrees[id]);
+            for(int neighbor : neighbors) { // remove id from the id lists of its neighbors
+                removeNeighborId(neighbor, id);
+            }
+            degrees[id] = 0;
+            neighborIds[id] = null;
+            idToVertex.set(id, null);
+            HashSet<E> adjacent = edges.remove(vertex); // remove vertex from the edges
+            if(adjacent!=null) { // edges are undirected, so only the neighbors point back to it
+                for(E neighbor : adjacent)edges.get(neighbor).remove(vertex);
+            }
+            version++;
+            for(GraphListener listener : listeners) {
+                for(int neighbor : neighbors)listener.edgeRemoved(id, neighbor);
+                listener.vertexRemoved(id);
+            }
             return vertex;           
         }
     }
 
+    /**
+     * Remove many vertices and their edges in one pass. Edges between two removed vertices are
+     * dropped with the vertices instead of being removed one end at a time, and the version
+     * changes once for the whole batch. Null vertices and vertices not in the graph are skipped.
+     * 
+     * @param batch the vertices to remove
+     * @return number of vertices removed
+     */
+    public int removeVertices(Collection<? extends E> batch) {
+        List<E> removed = new ArrayList<E>();
+        int[] removedIds = new int[batch.size()];
+        for(E vertex : batch) {
+            if(vertex==null||!vertices.remove(vertex))continue; // null, missing or repeated
+            int id = ids.remove(vertex);
+            idToVertex.set(id, null); // marks the id as removed for the loops below
+            removedIds[removed.size()] = id;
+            removed.add(vertex);
+        }
+        if(removed.isEmpty())return 0;
+        for(int i=0; i<removed.size(); i++) {
+            E vertex = removed.get(i);
+            int id = removedIds[i];
+            for(int k=0; k<degrees[id]; k++) { // only the neighbors that stay keep a list
+                int neighbor = neighborIds[id][k];
+                if(idToVertex.get(neighbor)!=null)removeNeighborId(neighbor, id);
+            }
+            HashSet<E> adjacent = edges.remove(vertex);
+            if(adjacent!=null) {
+                for(E neighbor : adjacent) { // the sets of removed neighbors are dropped whole
+                    if(vertices.contains(neighbor))edges.get(neighbor).remove(vertex);
+                }
+            }
+        }
+        version++;
+        for(int i=0; i<removed.size(); i++) {
+            int id = removedIds[i];
+            for(GraphListener listener : listeners) {
+                for(int k=0; k<degrees[id]; k++) { // an edge between two removed vertices once
+                    int neighbor = neighborIds[id][k];
+                    if(idToVertex.get(neighbor)!=null||neighbor>id)listener.edgeRemoved(id, neighbor);
+                }
+                listener.vertexRemoved(id);
+            }
+            degrees[id] = 0;
+            neighborIds[id] = null;
+        }
+        return removed.size();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -67,10 +288,16 @@ public class Graph<E> implements GraphADT<E> {
         if(!vertices.contains(vertex1)||!vertices.contains(vertex2)) return false; // both the vertices should exist in the graph
         else if(vertex1.equals(vertex2)) return false; // vertex1 should not equal vertex2
         else {
-            edges.put(vertex1, edges.getOrDefault(vertex1, new HashSet<E>()));
-            edges.get(vertex1).add(vertex2);
-            edges.put(vertex2, edges.getOrDefault(vertex2, new HashSet<E>()));
-            edges.get(vertex2).add(vertex1);
+            boolean added = edges.computeIfAbsent(vertex1, v -> new HashSet<E>()).add(vertex2);
+            edges.computeIfAbsent(vertex2, v -> new HashSet<E>()).add(vertex1);
+            if(added) { // adding an existing edge does not change the graph
+                int id1 = ids.get(vertex1);
+                int id2 = ids.get(vertex2);
+                addNeighborId(id1, id2);
+                addNeighborId(id2, id1);
+                version++;
+                for(GraphListener listener : listeners)listener.edgeAdded(id1, id2);
+            }
             return true;
         }
     }    
@@ -83,10 +310,16 @@ public class Graph<E> implements GraphADT<E> {
         if(!vertices.contains(vertex1)||!vertices.contains(vertex2)) return false; // both the vertices should exist in the graph
         else if(vertex1.equals(vertex2)) return false; // vertex1 should not equal vertex2
         else {
-            edges.put(vertex1, edges.getOrDefault(vertex1, new HashSet<E>()));
-            edges.get(vertex1).remove(vertex2);
-            edges.put(vertex2, edges.getOrDefault(vertex2, new HashSet<E>()));
-            edges.get(vertex2).remove(vertex1);
+            HashSet<E> neighbors1 = edges.get(vertex1); // null if vertex1 never had an edge
+            if(neighbors1!=null && neighbors1.remove(vertex2)) { // removing a missing edge does not change the graph
+                edges.get(vertex2).remove(vertex1);
+                int id1 = ids.get(vertex1);
+                int id2 = ids.get(vertex2);
+                removeNeighborId(id1, id2);
+                removeNeighborId(id2, id1);
+                version++;
+                for(GraphListener listener : listeners)listener.edgeRemoved(id1, id2);
+            }
             return true;
         }
     }
@@ -99,9 +332,8 @@ public class Graph<E> implements GraphADT<E> {
         if(!vertices.contains(vertex1)||!vertices.contains(vertex2)) return false; // both the vertices should exist in the graph
         else if(vertex1.equals(vertex2)) return false; // vertex1 should not equal vertex2
         else {
-            edges.put(vertex1, edges.getOrDefault(vertex1, new HashSet<E>()));
-            if(edges.get(vertex1).contains(vertex2))return true;
-            else return false;
+            HashSet<E> neighbors = edges.get(vertex1); // only looked up, the map is never written
+            return neighbors!=null && neighbors.contains(vertex2);
         }   
     }
 
@@ -112,8 +344,9 @@ public class Graph<E> implements GraphADT<E> {
     public Iterable<E> getNeighbors(E vertex) {
         if(!vertices.contains(vertex))return null; // if vertex not exists, return null
         else {
-            edges.put(vertex, edges.getOrDefault(vertex, new HashSet<E>()));
-            return edges.get(vertex);
+            HashSet<E> neighbors = edges.get(vertex);
+            if(neighbors==null)return Collections.emptySet(); // shared, no set is made per call
+            return neighbors;
         }
     }
 
@@ -125,4 +358,146 @@ public class Graph<E> implements GraphADT<E> {
         return vertices;
     }
 
+    /**
+     * Get the modification version of the graph. The version changes every time a vertex or an
+     * edge is added or removed, so data derived from the graph can tell whether it is stale.
+     * 
+     * @return the current modification version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Register a listener to be told about every later change of the graph
+     * 
+     * @param listener the listener
+     */
+    public void addGraphListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop telling a listener about changes of the graph
+     * 
+     * @param listener the listener
+     */
+    public void removeGraphListener(GraphListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Take an immutable compressed sparse row snapshot of the graph. The snapshot keeps the ids
+     * of this graph and does not change when this graph changes afterwards. The same snapshot is
+     * returned again as long as the graph is not modified.
+     * 
+     * @return read only snapshot of the graph
+     */
+    public CsrGraph<E> freeze() {
+        if(frozen!=null && frozenVersion==version)return frozen;
+        int bound = idToVertex.size();
+        int[] offsets = new int[bound+1];
+        for(int id=0; id<bound; id++) { // neighbors of id start where the ones of id-1 end
+            offsets[id+1] = offsets[id]+degrees[id];
+        }
+        int[] targets = new int[offsets[bound]];
+        for(int id=0; id<bound; id++) {
+            if(degrees[id]>0)System.arraycopy(neighborIds[id], 0, targets, offsets[id], degrees[id]);
+        }
+        frozen = new CsrGraph<E>(idToVertex.toArray(), offsets, targets);
+        frozenVersion = version;
+        return frozen;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getId(E vertex) {
+        if(vertex==null)return -1;
+        Integer id = ids.get(vertex);
+        return id==null?-1:id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E getVertex(int id) {
+        if(id<0||id>=idToVertex.size())return null;
+        return idToVertex.get(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIdBound() {
+        return idToVertex.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDegree(int id) {
+        if(id<0||id>=idToVertex.size())return 0;
+        return degrees[id];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNeighborId(int id, int index) {
+        return neighborIds[id][index];
+    }
+
+    /**
+     * Give a new vertex the next id
+     * 
+     * @param vertex the vertex
+     * @return the id of the vertex
+     */
+    private int internVertex(E vertex) {
+        int id = idToVertex.size();
+        if(id==degrees.length) { // grow the id indexed arrays
+            degrees = Arrays.copyOf(degrees, id*2);
+            neighborIds = Arrays.copyOf(neighborIds, id*2);
+        }
+        ids.put(vertex, id);
+        idToVertex.add(vertex);
+        neighborIds[id] = new int[2];
+        return id;
+    }
+
+    /**
+     * Append an id to the id list of a vertex
+     * 
+     * @param id the vertex
+     * @param neighbor the id of the new neighbor
+     */
+    private void addNeighborId(int id, int neighbor) {
+        if(degrees[id]==neighborIds[id].length) {
+            neighborIds[id] = Arrays.copyOf(neighborIds[id], degrees[id]*2);
+        }
+        neighborIds[id][degrees[id]++] = neighbor;
+    }
+
+    /**
+     * Remove an id from the id list of a vertex by moving the last id into its place
+     * 
+     * @param id the vertex
+     * @param neighbor the id of the neighbor to remove
+     */
+    private void removeNeighborId(int id, int neighbor) {
+        int[] list = neighborIds[id];
+        for(int i=0; i<degrees[id]; i++) {
+            if(list[i]==neighbor) {
+                list[i] = list[--degrees[id]];
+                return;
+            }
+        }
+    }
+
 }
@@ -0,0 +1,723 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Timing runs for the graph and the shortest path code, started from the command line.
+ *
+ * Larger dictionaries are made from word_list.txt by putting the words behind different prefixes,
+ * so the graph of every copy has the same shape and the copies are linked to each other.
+ *
+ * Usage: java GraphBenchmark [dictionary] [copies]
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class GraphBenchmark {
+
+    private static final Random RANDOM = new Random(400); // fixed seed so runs are comparable
+
+    /**
+     * Runs every benchmark
+     *
+     * @param args optional dictionary file (default word_list.txt) and number of copies
+     *        (default 4)
+     * @throws IOException if the dictionary can't be read or the scaled copy can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        String dictionary = args.length > 0 ? args[0] : "word_list.txt";
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Path scaled = scaledDictionary(dictionary, copies);
+        try {
+            System.out.println("dictionary: " + dictionary + " x " + copies);
+            benchmarkIncrementalUpdates(scaled.toString());
+            benchmarkAStar(dictionary);
+            benchmarkAStar(scaled.toString());
+            benchmarkVertexRemoval(scaled.toString());
+            benchmarkBuilder(scaled.toString());
+            benchmarkMemory(scaled.toString());
+            benchmarkLoading(scaled.toString());
+            benchmarkIngestion(scaled.toString());
+            benchmarkSnapshot(dictionary, true);
+            benchmarkSnapshot(scaled.toString(), false);
+            benchmarkMappedTable(scaled.toString());
+            benchmarkLandmarks(dictionary);
+            benchmarkLandmarks(scaled.toString());
+            benchmarkComponents(scaled.toString());
+            benchmarkBatch(scaled.toString());
+        } finally {
+            Files.deleteIfExists(scaled);
+        }
+    }
+
+    /**
+     * Writes a temporary dictionary with every word of a dictionary behind several prefixes
+     *
+     * @param dictionary the dictionary file
+     * @param copies number of prefixes
+     * @return the temporary file, to be deleted by the caller
+     * @throws IOException if a file can't be read or written
+     */
+    static Path scaledDictionary(String dictionary, int copies) throws IOException {
+        List<String> words;
+        try (Stream<String> stream = WordProcessor.getWordStream(dictionary)) {
+            words = stream.collect(Collectors.toList());
+        }
+        List<String> lines = new ArrayList<>();
+        for (int copy = 0; copy < copies; copy++) {
+            String prefix = prefix(copy);
+            for (String word : words) {
+                lines.add(prefix + word);
+            }
+        }
+        Path file = Files.createTempFile("dictionary", ".txt");
+        Files.write(file, lines);
+        return file;
+    }
+
+    /**
+     * Gets the prefix of a copy: "", A, B, ..., Z, AA, AB, ...
+     */
+    private static String prefix(int copy) {
+        StringBuilder sb = new StringBuilder();
+        while (copy > 0) {
+            copy--;
+            sb.insert(0, (char) ('A' + copy % 26));
+            copy /= 26;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Picks random vertices of a graph
+     *
+     * @param graph the graph
+     * @param count number of vertices
+     * @return the vertices, possibly with repeats
+     */
+    static List<String> randomVertices(Graph<String> graph, int count) {
+        List<String> all = new ArrayList<>(graph.vertices);
+        List<String> picked = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            picked.add(all.get(RANDOM.nextInt(all.size())));
+        }
+        return picked;
+    }
+
+    /**
+     * Prints the time since start in milliseconds
+     *
+     * @param label what was timed
+     * @param start System.nanoTime() when it started
+     * @return the time in milliseconds
+     */
+    static double report(String label, long start) {
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("  %-50s %10.2f ms%n", label, millis);
+        return millis;
+    }
+
+    /**
+     * Compares bringing the shortest path table up to date after small batches of changes with
+     * computing it again from scratch
+     *
+     * @param dictionary the dictionary file
+     */
+    static void benchmarkIncrementalUpdates(String dictionary) {
+        System.out.println("incremental shortest path updates");
+        GraphProcessor processor = new GraphProcessor();
+        processor.populateGraph(dictionary);
+        Graph<String> graph = processor.getGraph();
+        long start = System.nanoTime();
+        processor.shortestPathPrecomputation();
+        double full = report("full precomputation (" + graph.vertices.size() + " words)", start);
+
+        // a batch of new words, each one letter longer than an existing word
+        List<String> batch = new ArrayList<>();
+        for (String word : randomVertices(graph, 20)) {
+            batch.add(word + "S");
+        }
+        for (String word : batch) {
+            if (graph.addVertex(word) != null) {
+                for (String other : randomVertices(graph, 1)) {
+                    graph.addEdge(word, other); // a random link so that paths change
+                }
+            }
+        }
+        start = System.nanoTime();
+        processor.getShortestDistance(batch.get(0), batch.get(1));
+        double added = report("update after adding 20 words and 20 edges", start);
+
+        // a batch of random edge removals
+        int removed = 0;
+        for (String word : randomVertices(graph, 200)) {
+            Iterable<String> neighbors = graph.getNeighbors(word);
+            for (String neighbor : neighbors) {
+                graph.removeEdge(word, neighbor);
+                removed++;
+                break;
+            }
+            if (removed == 5) {
+                break;
+            }
+        }
+        start = System.nanoTime();
+        processor.getShortestDistance(batch.get(0), batch.get(1));
+        double deleted = report("update after removing " + removed + " edges", start);
+
+        System.out.printf("  speedup over full precomputation: %.1fx (add), %.1fx (remove)%n",
+            full / added, full / deleted);
+    }
+
+    /**
+     * Picks random pairs of vertices that are connected by a path of at least one edge
+     *
+     * @param processor a processor in PRECOMPUTED mode
+     * @param count number of pairs
+     * @return the pairs
+     */
+    static List<String[]> randomConnectedPairs(GraphProcessor processor, int count) {
+        List<String[]> pairs = new ArrayList<>();
+        for (int tries = 0; pairs.size() < count && tries < count * 1000; tries++) {
+            List<String> ends = randomVertices(processor.getGraph(), 2);
+            if (processor.getShortestDistance(ends.get(0), ends.get(1)) > 0) {
+                pairs.add(new String[] {ends.get(0), ends.get(1)});
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Compares the vertices expanded by A* searches with the vertices a plain breadth first
+     * search visits before it reaches the target
+     *
+     * @param dictionary the dictionary file
+     */
+    static void benchmarkAStar(String dictionary) {
+        GraphProcessor processor = new GraphProcessor();
+        processor.populateGraph(dictionary);
+        System.out.println("A* search (" + processor.getGraph().vertices.size() + " words)");
+        List<String[]> pairs = randomConnectedPairs(processor, 200);
+        Graph<String> graph = processor.getGraph();
+        int[] distance = new int[graph.getIdBound()];
+        int[] predecessor = new int[graph.getIdBound()];
+        int[] queue = new int[graph.getIdBound()];
+        long bfsVisited = 0;
+        long start = System.nanoTime();
+        for (String[] pair : pairs) {
+            // a breadth first search visits every vertex closer than the target
+            int target = graph.getId(pair[1]);
+            BreadthFirstSearch.search(graph, graph.getId(pair[0]), distance, predecessor, queue);
+            for (int d : distance) {
+                if (d >= 0 && d <= distance[target]) {
+                    bfsVisited++;
+                }
+            }
+        }
+        report("breadth first searches for " + pairs.size() + " pairs", start);
+        processor.setQueryMode(GraphProcessor.QueryMode.A_STAR);
+        long aStarExpanded = 0;
+        start = System.nanoTime();
+        for (String[] pair : pairs) {
+            processor.getShortestDistance(pair[0], pair[1]);
+            aStarExpanded += processor.getLastSearchCount();
+        }
+        report("A* searches for " + pairs.size() + " pairs", start);
+        System.out.printf("  average vertices visited: breadth first %.1f, A* expanded %.1f%n",
+            bfsVisited / (double) pairs.size(), aStarExpanded / (double) pairs.size());
+    }
+
+    /**
+     * Compares removing random words one at a time by scanning every adjacency set, as removal
+     * used to work, with removing them through their own neighbors and in one batch
+     *
+     * @param dictionary the dictionary file
+     */
+    static void benchmarkVertexRemoval(String dictionary) {
+        GraphProcessor scanned = new GraphProcessor();
+        GraphProcessor single = new GraphProcessor();
+        GraphProcessor batched = new GraphProcessor();
+        scanned.populateGraph(dictionary);
+        single.populateGraph(dictionary);
+        batched.populateGraph(dictionary);
+        int size = single.getGraph().vertices.size();
+        System.out.println("vertex removal (" + size + " words)");
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(
+            randomVertices(single.getGraph(), size / 4)));
+
+        Graph<String> graph = scanned.getGraph();
+        long start = System.nanoTime();
+        for (String word : words) {
+            for (Set<String> neighbors : graph.edges.values()) {
+                neighbors.remove(word); // what every removal cost before
+            }
+            graph.removeVertex(word);
+        }
+        double scan = report("removeVertex of " + words.size() + " words, scanning all sets", start);
+
+        graph = single.getGraph();
+        start = System.nanoTime();
+        for (String word : words) {
+            graph.removeVertex(word);
+        }
+        double own = report("removeVertex of " + words.size() + " words", start);
+
+        graph = batched.getGraph();
+        start = System.nanoTime();
+        graph.removeVertices(words);
+        double batch = report("removeVertices of " + words.size() + " words", start);
+        System.out.printf("  speedup over scanning: %.1fx (removeVertex), %.1fx (removeVertices)%n",
+            scan / own, scan / batch);
+    }
+
+    /**
+     * Reads the distinct words of a dictionary and finds the edges between them
+     *
+     * @param dictionary the dictionary file
+     * @param words filled with the words, in the order they are read
+     * @param edges filled with the pairs of adjacent words
+     * @throws IOException if the dictionary can't be read
+     */
+    static void readWordsAndEdges(String dictionary, List<String> words, List<String[]> edges)
+        throws IOException {
+        WordIndex index = new WordIndex();
+        try (Stream<String> stream = WordProcessor.getWordStream(dictionary)) {
+            stream.forEach(word -> {
+                if (!index.contains(word)) {
+                    words.add(word);
+                    for (String other : index.add(word)) {
+                        edges.add(new String[] {word, other});
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Compares building a graph one vertex and one edge at a time with building it through a
+     * {@link Graph.Builder}. The words and their edges are found first, so only the building is
+     * timed. Each way runs once to warm up before it is timed.
+     *
+     * @param dictionary the dictionary file
+     * @throws IOException if the dictionary can't be read
+     */
+    static void benchmarkBuilder(String dictionary) throws IOException {
+        List<String> words = new ArrayList<>();
+        List<String[]> edges = new ArrayList<>();
+        readWordsAndEdges(dictionary, words, edges);
+        System.out.println("graph building (" + words.size() + " words, " + edges.size()
+            + " edges)");
+        Map<String, Integer> positions = new HashMap<>();
+        for (String word : words) {
+            positions.put(word, positions.size());
+        }
+        int[] edgePositions = new int[2 * edges.size()]; // positions in words of both ends
+        for (int i = 0; i < edges.size(); i++) {
+            edgePositions[2 * i] = positions.get(edges.get(i)[0]);
+            edgePositions[2 * i + 1] = positions.get(edges.get(i)[1]);
+        }
+        double single = 0;
+        double built = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            Graph<String> graph = new Graph<>();
+            for (String word : words) {
+                graph.addVertex(word);
+            }
+            for (String[] edge : edges) {
+                graph.addEdge(edge[0], edge[1]);
+            }
+            single = round == 0 ? 0 : report("addVertex and addEdge", start);
+
+            start = System.nanoTime();
+            Graph.Builder<String> builder = new Graph.Builder<>(words.size(), edges.size());
+            int[] ids = new int[words.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = builder.addVertex(words.get(i));
+            }
+            for (int i = 0; i < edgePositions.length; i += 2) {
+                builder.addEdge(ids[edgePositions[i]], ids[edgePositions[i + 1]]);
+            }
+            builder.build();
+            built = round == 0 ? 0 : report("Graph.Builder", start);
+        }
+        System.out.printf("  speedup of the builder: %.1fx%n", single / built);
+    }
+
+    /**
+     * Gets the bytes of heap in use, after asking for garbage collection
+     *
+     * @return bytes used
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Prints the heap taken per vertex and per edge
+     */
+    private static void reportHeap(String label, long vertexBytes, long edgeBytes, int vertices,
+        int edges) {
+        System.out.printf("  %-50s %6.1f B/vertex %6.1f B/edge%n", label,
+            vertexBytes / (double) vertices, edgeBytes / (double) edges);
+    }
+
+    /**
+     * Compares the heap taken by a {@link Graph} and by a {@link CompactGraph} of the same
+     * words and edges, first with only the vertices and then with the edges added. The words
+     * themselves are held by the benchmark and are not counted.
+     *
+     * @param dictionary the dictionary file
+     * @throws IOException if the dictionary can't be read
+     */
+    static void benchmarkMemory(String dictionary) throws IOException {
+        List<String> words = new ArrayList<>();
+        List<String[]> edges = new ArrayList<>();
+        readWordsAndEdges(dictionary, words, edges);
+        System.out.println("heap use (" + words.size() + " words, " + edges.size()
+            + " edges)");
+        long start = usedHeap();
+        Graph<String> graph = new Graph<>();
+        for (String word : words) {
+            graph.addVertex(word);
+        }
+        long verticesDone = usedHeap();
+        for (String[] edge : edges) {
+            graph.addEdge(edge[0], edge[1]);
+        }
+        long edgesDone = usedHeap();
+        reportHeap("Graph", verticesDone - start, edgesDone - verticesDone, words.size(),
+            edges.size());
+
+        start = usedHeap();
+        CompactGraph<String> compact = new CompactGraph<>(words.size());
+        for (String word : words) {
+            compact.addVertex(word);
+        }
+        verticesDone = usedHeap();
+        for (String[] edge : edges) {
+            compact.addEdge(edge[0], edge[1]);
+        }
+        compact.trimToSize();
+        edgesDone = usedHeap();
+        reportHeap("CompactGraph", verticesDone - start, edgesDone - verticesDone, words.size(),
+            edges.size());
+        if (graph.getIdBound() != compact.getIdBound()) { // keeps both graphs reachable
+            System.out.println("  the graphs differ");
+        }
+    }
+
+    /**
+     * Compares reading the words of a dictionary with {@link WordProcessor#getWordStream(String)}
+     * and with {@link WordProcessor#getMappedWordStream(String)}. Each loader runs a few times
+     * and the fastest run is kept.
+     *
+     * @param dictionary the dictionary file
+     * @throws IOException if the dictionary can't be read
+     */
+    static void benchmarkLoading(String dictionary) throws IOException {
+        double megabytes = Files.size(Paths.get(dictionary)) / (1024.0 * 1024.0);
+        System.out.printf("dictionary loading (%.1f MB)%n", megabytes);
+        double lines = Double.MAX_VALUE;
+        double mapped = Double.MAX_VALUE;
+        long count = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            try (Stream<String> stream = WordProcessor.getWordStream(dictionary)) {
+                count = stream.count();
+            }
+            lines = Math.min(lines, (System.nanoTime() - start) / 1e6);
+            start = System.nanoTime();
+            try (Stream<String> stream = WordProcessor.getMappedWordStream(dictionary)) {
+                count -= stream.count();
+            }
+            mapped = Math.min(mapped, (System.nanoTime() - start) / 1e6);
+            if (count != 0) {
+                System.out.println("  the loaders read different numbers of words");
+            }
+        }
+        System.out.printf("  %-50s %10.2f ms %8.1f MB/s%n", "getWordStream", lines,
+            megabytes / lines * 1000);
+        System.out.printf("  %-50s %10.2f ms %8.1f MB/s%n", "getMappedWordStream", mapped,
+            megabytes / mapped * 1000);
+    }
+
+    /**
+     * Compares populateGraph with populateGraphInParallel on every available processor, and
+     * prints the time of every stage of the parallel ingestion. Each way runs once to warm up
+     * before it is timed.
+     *
+     * @param dictionary the dictionary file
+     */
+    static void benchmarkIngestion(String dictionary) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.println("dictionary ingestion (" + threads + " threads)");
+        double single = 0;
+        double parallel = 0;
+        GraphProcessor processor = null;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            new GraphProcessor().populateGraph(dictionary);
+            single = round == 0 ? 0 : report("populateGraph", start);
+            processor = new GraphProcessor();
+            processor.setParallelism(threads);
+            start = System.nanoTime();
+            processor.populateGraphInParallel(dictionary);
+            parallel = round == 0 ? 0 : report("populateGraphInParallel", start);
+        }
+        for (String line : processor.getIngestionStats().toString().split("\\R")) {
+            System.out.println("    " + line);
+        }
+        System.out.printf("  speedup of the parallel ingestion: %.1fx%n", single / parallel);
+    }
+
+    /**
+     * Compares building a processor from a dictionary with reading it back from a
+     * {@link GraphSnapshotFile}. Each way runs once to warm up before it is timed.
+     *
+     * @param dictionary the dictionary file
+     * @param precompute whether the shortest path table is computed and saved as well
+     * @throws IOException if a file can't be read or written
+     */
+    static void benchmarkSnapshot(String dictionary, boolean precompute) throws IOException {
+        System.out.println("graph snapshot file" + (precompute ? " with shortest paths" : ""));
+        Path snapshot = Files.createTempFile("graph", ".snapshot");
+        try {
+            double build = 0;
+            double read = 0;
+            for (int round = 0; round < 2; round++) {
+                long start = System.nanoTime();
+                GraphProcessor processor = new GraphProcessor();
+                processor.populateGraph(dictionary);
+                if (precompute) {
+                    processor.shortestPathPrecomputation();
+                }
+                String label = "populateGraph" + (precompute ? " + precompute" : "");
+                build = round == 0 ? 0 : report(label, start);
+                start = System.nanoTime();
+                processor.saveSnapshot(snapshot.toString(), dictionary);
+                if (round > 0) {
+                    report("saveSnapshot", start);
+                }
+                start = System.nanoTime();
+                GraphSnapshotFile.loadOrBuild(snapshot.toString(), dictionary, precompute);
+                read = round == 0 ? 0 : report("loadOrBuild from the snapshot", start);
+            }
+            System.out.printf("  snapshot size: %.1f MB, start up %.1fx faster%n",
+                Files.size(snapshot) / (1024.0 * 1024.0), build / read);
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Compares the PRECOMPUTED and the MAPPED query modes: time to compute the table, heap it
+     * takes, time of a full garbage collection while it is in use, and time of random queries.
+     * MAPPED runs first, so its garbage collection is not slowed by the heap the other table grew
+     *
+     * @param dictionary the dictionary file
+     */
+    static void benchmarkMappedTable(String dictionary) {
+        GraphProcessor.QueryMode[] modes =
+            {GraphProcessor.QueryMode.MAPPED, GraphProcessor.QueryMode.PRECOMPUTED};
+        List<String[]> pairs = null;
+        for (GraphProcessor.QueryMode mode : modes) {
+            GraphProcessor processor = new GraphProcessor();
+            processor.setQueryMode(mode);
+            processor.populateGraph(dictionary);
+            if (pairs == null) {
+                System.out.println("off heap distance table (" + processor.getGraph().vertices
+                    .size() + " words)");
+                pairs = new ArrayList<>();
+                for (int i = 0; i < 100000; i++) {
+                    List<String> ends = randomVertices(processor.getGraph(), 2);
+                    pairs.add(new String[] {ends.get(0), ends.get(1)});
+                }
+            }
+            long before = usedHeap();
+            long start = System.nanoTime();
+            processor.getShortestDistance(pairs.get(0)[0], pairs.get(0)[1]); // computes the table
+            report(mode + " table", start);
+            long heap = usedHeap() - before;
+            double pause = Double.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                start = System.nanoTime();
+                System.gc();
+                pause = Math.min(pause, (System.nanoTime() - start) / 1e6);
+            }
+            long total = 0;
+            start = System.nanoTime();
+            for (String[] pair : pairs) {
+                total += processor.getShortestDistance(pair[0], pair[1]);
+            }
+            report(pairs.size() + " " + mode + " distance queries", start);
+            System.out.printf("  %-50s %10.1f MB, full gc %.1f ms (sum %d)%n", mode + " heap",
+                heap / (1024.0 * 1024.0), pause, total);
+        }
+    }
+
+    /**
+     * Compares exact queries by plain breadth first search, by A* on the edit distance and by A*
+     * on the landmark bounds (LANDMARK mode), on connected pairs and on random pairs
+     *
+     * @param dictionary the dictionary file
+     */
+    static void benchmarkLandmarks(String dictionary) {
+        GraphProcessor processor = new GraphProcessor();
+        processor.populateGraph(dictionary);
+        Graph<String> graph = processor.getGraph();
+        System.out.println("landmark oracle (" + graph.vertices.size() + " words, "
+            + GraphProcessor.DEFAULT_LANDMARK_COUNT + " landmarks)");
+        List<String[]> connected = randomConnectedPairs(processor, 500);
+        List<String[]> random = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            List<String> ends = randomVertices(graph, 2);
+            random.add(new String[] {ends.get(0), ends.get(1)});
+        }
+        long start = System.nanoTime();
+        processor.getDistanceBounds(connected.get(0)[0], connected.get(0)[1]);
+        report("choose and search the landmarks", start);
+        int[] distance = new int[graph.getIdBound()];
+        int[] predecessor = new int[graph.getIdBound()];
+        int[] queue = new int[graph.getIdBound()];
+        GraphProcessor.QueryMode[] modes =
+            {GraphProcessor.QueryMode.A_STAR, GraphProcessor.QueryMode.LANDMARK};
+        for (int round = 0; round < 4; round++) {
+            List<String[]> pairs = round < 2 ? connected : random;
+            boolean print = round % 2 == 1; // the first run of every list warms up
+            String kind = round < 2 ? " connected pairs" : " random pairs";
+            start = System.nanoTime();
+            for (String[] pair : pairs) {
+                BreadthFirstSearch.search(graph, graph.getId(pair[0]), distance, predecessor,
+                    queue);
+            }
+            double bfs = (System.nanoTime() - start) / 1e6;
+            if (print) {
+                System.out.printf("  %-50s %10.2f ms%n", "breadth first search, " + pairs.size()
+                    + kind, bfs);
+            }
+            for (GraphProcessor.QueryMode mode : modes) {
+                processor.setQueryMode(mode);
+                long expanded = 0;
+                start = System.nanoTime();
+                for (String[] pair : pairs) {
+                    processor.getShortestDistance(pair[0], pair[1]);
+                    expanded += processor.getLastSearchCount();
+                }
+                double time = (System.nanoTime() - start) / 1e6;
+                if (print) {
+                    System.out.printf("  %-50s %10.2f ms %8.1f expanded %6.1fx faster than bfs%n",
+                        mode + ", " + pairs.size() + kind, time,
+                        expanded / (double) pairs.size(), bfs / time);
+                }
+            }
+            processor.setQueryMode(GraphProcessor.QueryMode.PRECOMPUTED);
+        }
+    }
+
+    /**
+     * Prints how fragmented a dictionary is, and compares answering pairs of words with no path
+     * between them by a bidirectional search with answering them from the component index
+     *
+     * @param dictionary the dictionary file
+     */
+    static void benchmarkComponents(String dictionary) {
+        GraphProcessor processor = new GraphProcessor();
+        processor.populateGraph(dictionary);
+        Graph<String> graph = processor.getGraph();
+        System.out.println("connected components (" + graph.vertices.size() + " words)");
+        SortedMap<Integer, Integer> sizes = processor.getComponentSizes();
+        System.out.println("  " + processor.getComponentCount() + " components, largest "
+            + sizes.lastKey() + " words, " + sizes.getOrDefault(1, 0) + " words alone");
+        List<String[]> pairs = new ArrayList<>();
+        while (pairs.size() < 500) {
+            List<String> ends = randomVertices(graph, 2);
+            if (!processor.isConnected(ends.get(0), ends.get(1))) {
+                pairs.add(new String[] {ends.get(0), ends.get(1)});
+            }
+        }
+        CsrGraph<String> frozen = graph.freeze();
+        BidirectionalSearch search = new BidirectionalSearch();
+        processor.setQueryMode(GraphProcessor.QueryMode.ON_DEMAND);
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (String[] pair : pairs) {
+                search.search(frozen, frozen.getId(pair[0]), frozen.getId(pair[1]));
+            }
+            double searched = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            for (String[] pair : pairs) {
+                processor.getShortestDistance(pair[0], pair[1]);
+            }
+            double indexed = (System.nanoTime() - start) / 1e6;
+            if (round > 0) { // the first round warms up
+                System.out.printf("  %-50s %10.2f ms%n", "bidirectional search, " + pairs.size()
+                    + " pairs with no path", searched);
+                System.out.printf("  %-50s %10.2f ms%n",
+                    "ON_DEMAND queries with the component index", indexed);
+            }
+        }
+    }
+
+    /**
+     * Compares answering 10,000 pairs one query at a time with answering them as one batch, for
+     * connected pairs whose first words are drawn from 200 words. Each way runs a few times and
+     * the fastest run is kept.
+     *
+     * @param dictionary the dictionary file
+     */
+    static void benchmarkBatch(String dictionary) {
+        GraphProcessor processor = new GraphProcessor();
+        processor.populateGraph(dictionary);
+        processor.setParallelism(Runtime.getRuntime().availableProcessors());
+        List<String> sources = randomVertices(processor.getGraph(), 200);
+        List<String[]> pairs = new ArrayList<>();
+        while (pairs.size() < 10000) {
+            String source = sources.get(RANDOM.nextInt(sources.size()));
+            String target = randomVertices(processor.getGraph(), 1).get(0);
+            if (processor.isConnected(source, target)) { // pairs with no path need no search
+                pairs.add(new String[] {source, target});
+            }
+        }
+        System.out.println("batch queries (" + processor.getGraph().vertices.size() + " words, "
+            + pairs.size() + " pairs, " + processor.getParallelism() + " threads)");
+        GraphProcessor.QueryMode[] modes = {GraphProcessor.QueryMode.ON_DEMAND,
+            GraphProcessor.QueryMode.CACHED, GraphProcessor.QueryMode.PRECOMPUTED};
+        for (GraphProcessor.QueryMode mode : modes) {
+            processor.setQueryMode(mode);
+            processor.getShortestDistance(pairs.get(0)[0], pairs.get(0)[1]); // computes a table
+            double single = Double.MAX_VALUE;
+            double batch = Double.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                processor.getSourceCache().clear();
+                long start = System.nanoTime();
+                for (String[] pair : pairs) {
+                    processor.getShortestPath(pair[0], pair[1]);
+                }
+                single = Math.min(single, (System.nanoTime() - start) / 1e6);
+                start = System.nanoTime();
+                processor.getShortestPaths(pairs);
+                batch = Math.min(batch, (System.nanoTime() - start) / 1e6);
+            }
+            System.out.printf("  %-50s %10.2f ms %10.0f pairs/s%n", mode + " one query per pair",
+                single, pairs.size() / single * 1000);
+            System.out.printf("  %-50s %10.2f ms %10.0f pairs/s%n", mode + " batch", batch,
+                pairs.size() / batch * 1000);
+        }
+    }
+}
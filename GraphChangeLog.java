@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * Records the changes made to a graph since the last time it was cleared, so that data derived
+ * from the graph can be brought up to date by replaying only those changes.
+ *
+ * The log holds at most a limited number of changes. Once more changes happen it is marked as
+ * overflowed and stops recording, because rebuilding the derived data is then cheaper than
+ * replaying the changes.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class GraphChangeLog implements GraphListener {
+
+    public static final int VERTEX_ADDED = 0;
+    public static final int VERTEX_REMOVED = 1;
+    public static final int EDGE_ADDED = 2;
+    public static final int EDGE_REMOVED = 3;
+
+    private int[] kinds; // kind of every change
+    private int[] firstIds; // vertex of every change, or first vertex of an edge
+    private int[] secondIds; // second vertex of an edge change
+    private int size; // number of changes recorded
+    private int limit; // most changes recorded before the log overflows
+    private boolean overflowed; // whether changes were dropped
+
+    /**
+     * Constructor for this class. Creates an empty log.
+     *
+     * @param limit most changes recorded before the log overflows
+     */
+    public GraphChangeLog(int limit) {
+        this.kinds = new int[16];
+        this.firstIds = new int[16];
+        this.secondIds = new int[16];
+        this.limit = limit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void vertexAdded(int id) {
+        record(VERTEX_ADDED, id, -1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void vertexRemoved(int id) {
+        record(VERTEX_REMOVED, id, -1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void edgeAdded(int id1, int id2) {
+        record(EDGE_ADDED, id1, id2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void edgeRemoved(int id1, int id2) {
+        record(EDGE_REMOVED, id1, id2);
+    }
+
+    /**
+     * Appends a change, or marks the log as overflowed if it is full
+     */
+    private void record(int kind, int first, int second) {
+        if (overflowed) {
+            return;
+        }
+        if (size == limit) {
+            overflowed = true;
+            return;
+        }
+        if (size == kinds.length) {
+            int capacity = Math.min(limit, size * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstIds = Arrays.copyOf(firstIds, capacity);
+            secondIds = Arrays.copyOf(secondIds, capacity);
+        }
+        kinds[size] = kind;
+        firstIds[size] = first;
+        secondIds[size] = second;
+        size++;
+    }
+
+    /**
+     * Forgets every recorded change and sets a new limit
+     *
+     * @param limit most changes recorded before the log overflows
+     */
+    public void clear(int limit) {
+        this.size = 0;
+        this.limit = limit;
+        this.overflowed = false;
+    }
+
+    /**
+     * Get the number of recorded changes
+     *
+     * @return number of changes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether changes happened that were not recorded
+     *
+     * @return true if the log overflowed
+     */
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * Get the kind of a change, one of {@link #VERTEX_ADDED}, {@link #VERTEX_REMOVED},
+     * {@link #EDGE_ADDED} and {@link #EDGE_REMOVED}
+     *
+     * @param index number of the change, in the order they happened
+     * @return kind of the change
+     */
+    public int getKind(int index) {
+        return kinds[index];
+    }
+
+    /**
+     * Get the vertex of a vertex change or the first vertex of an edge change
+     *
+     * @param index number of the change
+     * @return id of the vertex
+     */
+    public int getFirstId(int index) {
+        return firstIds[index];
+    }
+
+    /**
+     * Get the second vertex of an edge change
+     *
+     * @param index number of the change
+     * @return id of the vertex, -1 for vertex changes
+     */
+    public int getSecondId(int index) {
+        return secondIds[index];
+    }
+}
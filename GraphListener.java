@@ -0,0 +1,41 @@
+/**
+ * Receives the changes made to a {@link Graph}, so that data derived from the graph can be
+ * updated instead of being rebuilt. Vertices are given by their ids, see {@link IndexedGraph}.
+ *
+ * Every method is called after the graph has been changed. Removing a vertex first reports the
+ * removal of each of its edges and then the removal of the vertex.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public interface GraphListener {
+
+    /**
+     * Called after a vertex has been added
+     *
+     * @param id id of the new vertex
+     */
+    public void vertexAdded(int id);
+
+    /**
+     * Called after a vertex has been removed, its edges have already been reported as removed
+     *
+     * @param id id the vertex had
+     */
+    public void vertexRemoved(int id);
+
+    /**
+     * Called after a new edge has been added
+     *
+     * @param id1 id of the first vertex
+     * @param id2 id of the second vertex
+     */
+    public void edgeAdded(int id1, int id2);
+
+    /**
+     * Called after an existing edge has been removed
+     *
+     * @param id1 id of the first vertex
+     * @param id2 id of the second vertex
+     */
+    public void edgeRemoved(int id1, int id2);
+}
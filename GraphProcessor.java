@@ -1,15 +1,31 @@
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -38,33 +54,135 @@ import java.util.stream.Stream;
  *      {@link #shortestPathPrecomputation()} must have been invoked once before invoking this
  *      method.
  * 
+ * Queries may be run from many threads at once. They read an immutable {@link Snapshot} of the
+ * graph and of the shortest path data, published through an atomic reference, and take no lock.
+ * Changes to the graph are made by one writer at a time under {@link #writeLock}, on the mutable
+ * graph, and the queries keep reading the previous snapshot until the writer publishes a new one.
+ * 
  * @author Chentao Wang (cwang556@wisc.edu)
  * 
  */
 public class GraphProcessor {
 
-    class VertexNode implements Comparable<VertexNode> {
-        String name;
-        Integer weight = Integer.MAX_VALUE;
-        VertexNode pred = null;
-        boolean visited = false;
+    /**
+     * How the shortest path queries are answered
+     */
+    public enum QueryMode {
+        /**
+         * From the all pairs data of {@link GraphProcessor#shortestPathPrecomputation()}, the
+         * default. Best for many queries on a graph that rarely changes.
+         */
+        PRECOMPUTED,
+        /**
+         * By a {@link BidirectionalSearch} for every query, with no precomputation. Best for a few
+         * queries on a freshly loaded or changing graph.
+         */
+        ON_DEMAND,
+        /**
+         * By an {@link AStarSearch} for every query, guided by the edit distance between the
+         * words, with no precomputation.
+         */
+        A_STAR,
+        /**
+         * From a {@link SourceCache} of single source searches, which searches from a source
+         * word the first time it is asked for. Best when most queries start from a few words.
+         */
+        CACHED,
+        /**
+         * From a {@link MappedDistanceTable}, one byte per pair of words in a memory mapped file
+         * outside the heap, computed the first time it is needed after the graph changed. Best
+         * for dictionaries whose all pairs data does not fit in the heap.
+         */
+        MAPPED,
+        /**
+         * By an {@link AStarSearch} for every query, guided by the lower bound of a
+         * {@link LandmarkOracle}, which also answers at once that there is no path between words
+         * of different components. The landmarks are searched the first time
+         * they are needed after the graph changed, and take memory linear in the number of words.
+         */
+        LANDMARK
+    }
+
+    /**
+     * Default memory budget of the {@link SourceCache} used in CACHED mode
+     */
+    public static final long DEFAULT_CACHE_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * Default number of landmarks of the LANDMARK mode
+     */
+    public static final int DEFAULT_LANDMARK_COUNT = 16;
 
-        VertexNode(String name) {
-            this.name = name;
+    /**
+     * Everything a query reads, published as a whole and never changed afterwards
+     */
+    private static class Snapshot {
+        private final CsrGraph<String> graph; // the graph at the time of publication
+        private final int version; // version of the mutable graph it was taken from
+        private final PathTable table; // shortest paths of graph, null if not computed
+        private final MappedDistanceTable mapped; // distances of graph, null if not computed
+        private final LandmarkOracle landmarks; // landmarks of graph, null if not computed
+        private final ComponentIndex.Components components; // connected components of graph
+
+        Snapshot(CsrGraph<String> graph, int version, PathTable table,
+            MappedDistanceTable mapped, LandmarkOracle landmarks,
+            ComponentIndex.Components components) {
+            this.graph = graph;
+            this.version = version;
+            this.table = table;
+            this.mapped = mapped;
+            this.landmarks = landmarks;
+            this.components = components;
         }
 
-        @Override
-        public int compareTo(VertexNode other) {
-            return weight.compareTo(other.weight);
+        /**
+         * Checks whether the snapshot has the data the queries of a mode read
+         *
+         * @param mode the query mode, null for no data
+         * @return false if a PRECOMPUTED, MAPPED or LANDMARK snapshot is missing its data
+         */
+        boolean isReady(QueryMode mode) {
+            if (mode == QueryMode.PRECOMPUTED) {
+                return table != null;
+            } else if (mode == QueryMode.MAPPED) {
+                return mapped != null;
+            }
+            return mode != QueryMode.LANDMARK || landmarks != null;
         }
+    }
 
+    /**
+     * Scratch space of the on demand queries of one thread
+     */
+    private static class Searches {
+        private BidirectionalSearch bidirectional = new BidirectionalSearch(); // ON_DEMAND
+        private AStarSearch aStar = new AStarSearch(); // A_STAR
+        private int lastCount; // vertices visited by the last query of the thread
     }
 
     /**
      * Graph which stores the dictionary words and their associated connections
      */
-    private GraphADT<String> graph;
-    private Map<String, Map<String, List<String>>> data;
+    private Graph<String> graph;
+    private WordIndex index; // words added by populateGraph, also removed ones, null until needed
+    private PathTable table; // precomputed shortest paths, null until first computed
+    private GraphChangeLog changes; // changes of the graph since the table was computed
+    private ComponentIndex components; // connected components, joined as edges are added
+    private int precomputedVersion; // graph version the precomputed data was built from
+    private MappedDistanceTable mappedTable; // distances of the MAPPED queries, null until needed
+    private int mappedVersion; // graph version the mapped table was built from
+    private volatile String mappedDirectory; // where the mapped table files go, null for temp
+    private LandmarkOracle landmarks; // landmarks of the LANDMARK queries, null until needed
+    private int landmarkVersion; // graph version the landmarks were searched in
+    private int landmarkCount; // number of landmarks to choose
+    private volatile int parallelism; // number of threads used by the precomputation
+    private volatile QueryMode queryMode; // how the queries are answered
+    private ThreadLocal<Searches> searches; // scratch space of the ON_DEMAND and A_STAR queries
+    private SourceCache sourceCache; // rows of the CACHED queries
+    private ReentrantLock writeLock; // held while the graph and the fields above it change
+    private AtomicReference<Snapshot> published; // what the queries read
+    private ExecutorService background; // thread of populateGraphInBackground, made when needed
+    private volatile IngestionStats ingestionStats; // stages of the last populateGraphInParallel
 
     /**
      * Constructor for this class. Initializes instances variables to set the starting state of the
@@ -72,7 +190,270 @@ public class GraphProcessor {
      */
     public GraphProcessor() {
         this.graph = new Graph<>();
-        this.data = new HashMap<String, Map<String, List<String>>>();
+        this.index = new WordIndex();
+        this.changes = new GraphChangeLog(0); // nothing to update before the first computation
+        this.graph.addGraphListener(changes);
+        this.components = new ComponentIndex();
+        this.graph.addGraphListener(components);
+        this.parallelism = 1;
+        this.queryMode = QueryMode.PRECOMPUTED;
+        this.landmarkCount = DEFAULT_LANDMARK_COUNT;
+        this.searches = ThreadLocal.withInitial(Searches::new);
+        this.sourceCache = new SourceCache(DEFAULT_CACHE_BUDGET);
+        this.writeLock = new ReentrantLock();
+        this.published = new AtomicReference<>(current());
+    }
+
+    /**
+     * Constructor for a graph read back from a {@link GraphSnapshotFile}. The word index is made
+     * from the vertices the first time a dictionary is added.
+     * 
+     * @param graph the graph, owned by the processor from now on
+     * @param table shortest paths of the graph, null if they were not saved
+     */
+    GraphProcessor(Graph<String> graph, PathTable table) {
+        this();
+        this.graph = graph;
+        this.index = null;
+        this.components = new ComponentIndex();
+        graph.addGraphListener(changes);
+        graph.addGraphListener(components);
+        if (table != null) {
+            this.table = table;
+            this.precomputedVersion = graph.getVersion();
+            changes.clear(changeLimit());
+        }
+        published.set(current());
+    }
+
+    /**
+     * Gets the word index, made from the vertices of the graph if the graph was read from a file.
+     * Must be called with the write lock held.
+     * 
+     * @return the index
+     */
+    private WordIndex index() {
+        if (index == null) {
+            index = new WordIndex();
+            for (String word : graph.getAllVertices()) {
+                index.register(word);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Sets how {@link #getShortestPath(String, String)} and
+     * {@link #getShortestDistance(String, String)} are answered
+     * 
+     * @param queryMode the mode
+     */
+    public void setQueryMode(QueryMode queryMode) {
+        this.queryMode = queryMode;
+    }
+
+    /**
+     * Sets the directory of the files of the MAPPED query mode. A table needs one byte per pair
+     * of words, so the directory should be on a disk with room for it rather than in memory.
+     * Every graph change seen by a MAPPED query makes a new table of V * V bytes. The file of the
+     * table it replaces is truncated as soon as the queries still reading it are done, so the
+     * directory needs room for one table, and briefly for two while a change is published.
+     * 
+     * @param directory the directory, null for the default temporary directory
+     */
+    public void setMappedDirectory(String directory) {
+        this.mappedDirectory = directory;
+    }
+
+    /**
+     * Sets the number of landmarks of the LANDMARK mode. More landmarks give tighter bounds, and
+     * take more memory and time to search.
+     * 
+     * @param count number of landmarks
+     */
+    public void setLandmarkCount(int count) {
+        writeLock.lock();
+        try {
+            landmarkCount = count;
+            landmarks = null;
+            Snapshot snapshot = published.get();
+            published.set(new Snapshot(snapshot.graph, snapshot.version, snapshot.table,
+                snapshot.mapped, null, snapshot.components));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Gets bounds on the distance between two words from the landmarks of the LANDMARK mode,
+     * without any search. The landmarks are searched first if the graph changed.
+     * 
+     * @param word1 first word
+     * @param word2 second word
+     * @return the lower and the upper bound, the upper one {@link Integer#MAX_VALUE} if no
+     *         landmark reaches the words; -1 and -1 if a word is unknown or if the landmarks
+     *         show that there is no path
+     */
+    public int[] getDistanceBounds(String word1, String word2) {
+        Snapshot snapshot = snapshot(QueryMode.LANDMARK);
+        int source = snapshot.graph.getId(word1.toUpperCase());
+        int target = snapshot.graph.getId(word2.toUpperCase());
+        if (source < 0 || target < 0 || snapshot.landmarks.isSeparated(source, target)) {
+            return new int[] {-1, -1};
+        }
+        if (source == target) {
+            return new int[] {0, 0};
+        }
+        return new int[] {snapshot.landmarks.getLowerBound(source, target),
+            snapshot.landmarks.getUpperBound(source, target)};
+    }
+
+    /**
+     * Checks whether there is a path between two words, from the connected components of the
+     * graph, in O(1) and without any search
+     * 
+     * @param word1 first word
+     * @param word2 second word
+     * @return true if both words are known and there is a path between them
+     */
+    public boolean isConnected(String word1, String word2) {
+        Snapshot snapshot = snapshot(null);
+        return snapshot.components.isConnected(snapshot.graph.getId(word1.toUpperCase()),
+            snapshot.graph.getId(word2.toUpperCase()));
+    }
+
+    /**
+     * Gets the number of connected components of the graph, a word with no neighbor is a
+     * component by itself
+     * 
+     * @return number of components
+     */
+    public int getComponentCount() {
+        return snapshot(null).components.getComponentCount();
+    }
+
+    /**
+     * Gets how many connected components there are of every size, which shows how fragmented
+     * the dictionary is
+     * 
+     * @return number of words -> number of components with that many words, by increasing size
+     */
+    public SortedMap<Integer, Integer> getComponentSizes() {
+        return snapshot(null).components.getSizeDistribution();
+    }
+
+    /**
+     * Gets how the shortest path queries are answered
+     * 
+     * @return the mode
+     */
+    public QueryMode getQueryMode() {
+        return queryMode;
+    }
+
+    /**
+     * Gets the cache of single source searches used in CACHED mode, for its hit and miss counts
+     * and to change its memory budget
+     * 
+     * @return the cache
+     */
+    public SourceCache getSourceCache() {
+        return sourceCache;
+    }
+
+    /**
+     * Gets how much of the graph the last query of the calling thread searched: the number of
+     * vertices labeled by an ON_DEMAND query or expanded by an A_STAR or LANDMARK query.
+     * PRECOMPUTED, MAPPED and CACHED queries count as 0.
+     * 
+     * @return number of vertices visited by the last query
+     */
+    public int getLastSearchCount() {
+        return searches.get().lastCount;
+    }
+
+    /**
+     * Finds the distance between two vertices with the search of the current query mode, which
+     * must be ON_DEMAND, A_STAR or LANDMARK
+     * 
+     * @param mode the query mode
+     * @param snapshot the snapshot to search, with landmarks in LANDMARK mode
+     * @param search scratch space of the calling thread, which keeps the path that was found
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return number of edges on a shortest path, 0 for the same vertex, -1 if there is none
+     */
+    private static int searchOnDemand(QueryMode mode, Snapshot snapshot, Searches search,
+        int source, int target) {
+        CsrGraph<String> graph = snapshot.graph;
+        LandmarkOracle landmarks = snapshot.landmarks;
+        int distance;
+        if (mode == QueryMode.LANDMARK && landmarks.isSeparated(source, target)) {
+            distance = -1; // different components
+            search.lastCount = 0;
+        } else if (mode == QueryMode.LANDMARK) {
+            distance = search.aStar.search(graph, source, target, landmarks::getLowerBound);
+            search.lastCount = search.aStar.getExpandedCount();
+        } else if (mode == QueryMode.A_STAR) {
+            distance = search.aStar.search(graph, source, target, (vertex, goal) -> WordProcessor
+                .editDistance(graph.getVertex(vertex), graph.getVertex(goal)));
+            search.lastCount = search.aStar.getExpandedCount();
+        } else {
+            distance = search.bidirectional.search(graph, source, target);
+            search.lastCount = search.bidirectional.getLabeledCount();
+        }
+        return distance;
+    }
+
+    /**
+     * Gets the graph of the words. Vertices and edges may be added or removed directly, the
+     * shortest path data is brought up to date on the next query. Direct changes must not happen
+     * while other threads use this processor, {@link #updateGraph(Consumer)} makes them safely.
+     * 
+     * @return the graph
+     */
+    public Graph<String> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Changes the graph while other threads may be querying it. The change runs under the write
+     * lock, then the new graph is published to the queries, which keep seeing the old graph until
+     * then.
+     * 
+     * @param change what to do with the graph
+     */
+    public void updateGraph(Consumer<Graph<String>> change) {
+        writeLock.lock();
+        try {
+            change.accept(graph);
+            publish(null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Sets the number of threads {@link #shortestPathPrecomputation()} runs the searches from the
+     * different source vertices on. The default of 1 runs them on the calling thread.
+     * 
+     * @param parallelism number of threads, at least 1
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the number of threads used by {@link #shortestPathPrecomputation()}
+     * 
+     * @return number of threads
+     */
+    public int getParallelism() {
+        return parallelism;
     }
 
     /**
@@ -84,29 +465,256 @@ public class GraphProcessor {
      * 
      * For all possible pairs of vertices, finds if the pair of vertices is adjacent
      * {@link WordProcessor#isAdjacent(String, String)} If a pair is adjacent, adds an undirected
-     * and unweighted edge between the pair of vertices in the graph.
+     * and unweighted edge between the pair of vertices in the graph. Only pairs that share a
+     * bucket of a {@link WordIndex} are compared, so the other pairs are never checked.
+     * 
+     * The words are read one at a time from a memory mapped file
+     * ({@link WordProcessor#getMappedWordStream(String)}), and every word is connected to all the
+     * words added so far, including the words of earlier calls, so the file is never held in
+     * memory as a whole.
+     * 
+     * Queries from other threads are answered from the graph as it was before the call until the
+     * whole file has been added. If shortest paths have been precomputed, they are brought up to
+     * date before the new graph is published.
      * 
      * @param filepath file path to the dictionary
      * @return Integer the number of vertices (words) added
      */
     public Integer populateGraph(String filepath) {
-        Stream<String> stream;
-        String[] array = new String[0];
+        int count = 0; // number of words read
+        writeLock.lock();
+        try (Stream<String> stream = WordProcessor.getMappedWordStream(filepath)) {
+            Iterator<String> words = stream.iterator();
+            while (words.hasNext()) {
+                String s = words.next();
+                count++;
+                if (graph.addVertex(s) != null) {
+                    index().remove(s); // still indexed if it was removed from the graph
+                }
+                for (String ss : index().add(s)) { // only the indexed words adjacent to s
+                    graph.addEdge(s, ss);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                publish(null);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Builds the graph from the words in a file like {@link #populateGraph(String)}, with the
+     * work spread over {@link #getParallelism()} threads. The result is the same graph, the words
+     * may get different ids. The ingestion runs in stages, and the time of every stage is kept
+     * in {@link #getIngestionStats()}:
+     * 
+     * 1. parse: the file is split into parts at line breaks
+     * ({@link WordProcessor#splitLines(String, int)}), and the parts are read in parallel from
+     * the memory mapped file.
+     * 
+     * 2. deduplicate: the words of every part are checked in parallel against a concurrent set
+     * and against the words of the graph, so every new word is kept once. A word removed from the
+     * graph is new again, even though it stays in the index.
+     * 
+     * 3. index: the new words are registered in the {@link WordIndex}, on one thread. If a later
+     * stage fails they are taken out of the index again, so that a later call can still add them.
+     * 
+     * 4. find edges: the index is only read from now on, so the adjacent words of the new words
+     * are looked up in parallel. An edge between two new words is kept by the later one only.
+     * 
+     * 5. insert: the words and edges are added to the graph one at a time under the write lock,
+     * which is held for the whole call, and the new graph is published.
+     * 
+     * @param filepath file path to the dictionary
+     * @return Integer the number of vertices (words) read
+     */
+    public Integer populateGraphInParallel(String filepath) {
+        IngestionStats stats = new IngestionStats();
+        int count = 0; // number of words read
+        writeLock.lock();
+        ForkJoinPool pool = null;
+        List<String> registered = new ArrayList<>(); // new words put in the index by this call
+        boolean inserted = false; // whether the new words and their edges reached the graph
         try {
-            stream = WordProcessor.getWordStream(filepath);
-            array = stream.toArray(String[]::new);
-            for (String s : array) {
-                graph.addVertex(s);
-                for (String ss : array) {
-                    if (WordProcessor.isAdjacent(s, ss)) {
-                        graph.addEdge(s, ss);
+            pool = new ForkJoinPool(parallelism);
+            WordIndex index = index();
+            int tasks = parallelism * 4; // more tasks than threads to even out the work
+            long start = System.nanoTime();
+            long[] starts = WordProcessor.splitLines(filepath, tasks);
+            List<Callable<List<String>>> parsers = new ArrayList<>();
+            for (int part = 0; part + 1 < starts.length; part++) {
+                long from = starts[part];
+                long to = starts[part + 1];
+                parsers.add(() -> {
+                    try (Stream<String> stream = WordProcessor.getMappedWordStream(filepath, from,
+                        to)) {
+                        return stream.collect(Collectors.toList());
+                    }
+                });
+            }
+            List<List<String>> parts = invokeAll(pool, parsers);
+            for (List<String> part : parts) {
+                count += part.size();
+            }
+            start = stats.record("parse", start, starts[starts.length - 1], "bytes");
+
+            Set<String> seen = ConcurrentHashMap.newKeySet(count);
+            List<Callable<List<String>>> filters = new ArrayList<>();
+            for (List<String> part : parts) {
+                filters.add(() -> {
+                    List<String> fresh = new ArrayList<>();
+                    for (String word : part) {
+                        // new unless in the graph and connected through the index
+                        if ((!graph.vertices.contains(word) || !index.contains(word))
+                            && seen.add(word)) {
+                            fresh.add(word);
+                        }
+                    }
+                    return fresh;
+                });
+            }
+            List<String> words = new ArrayList<>(seen.size());
+            for (List<String> fresh : invokeAll(pool, filters)) {
+                words.addAll(fresh);
+            }
+            start = stats.record("deduplicate", start, count, "words");
+
+            Map<String, Integer> order = new HashMap<>(words.size() * 4 / 3 + 1);
+            for (String word : words) {
+                if (index.register(word)) { // false if it was removed from the graph
+                    registered.add(word);
+                }
+                order.put(word, order.size());
+            }
+            start = stats.record("index", start, words.size(), "words");
+
+            List<Callable<List<String[]>>> finders = new ArrayList<>();
+            int slice = (words.size() + tasks - 1) / tasks;
+            for (int from = 0; from < words.size(); from += slice) {
+                int first = from;
+                int last = Math.min(words.size(), from + slice);
+                finders.add(() -> {
+                    List<String[]> edges = new ArrayList<>();
+                    for (int i = first; i < last; i++) {
+                        String word = words.get(i);
+                        for (String other : index.findAdjacent(word)) {
+                            Integer position = order.get(other);
+                            if (position == null || position < i) { // each new edge once
+                                edges.add(new String[] {word, other});
+                            }
+                        }
                     }
+                    return edges;
+                });
+            }
+            List<List<String[]>> edges = invokeAll(pool, finders);
+            int edgeCount = 0;
+            for (List<String[]> found : edges) {
+                edgeCount += found.size();
+            }
+            start = stats.record("find edges", start, words.size(), "words");
+
+            for (String word : words) {
+                graph.addVertex(word);
+            }
+            for (List<String[]> found : edges) {
+                for (String[] edge : found) {
+                    graph.addEdge(edge[0], edge[1]);
                 }
             }
+            inserted = true;
+            stats.record("insert", start, edgeCount, "edges");
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            if (!inserted) {
+                // a later call only connects words missing from the index, so take these out
+                for (String word : registered) {
+                    index.remove(word);
+                }
+            }
+            try {
+                long start = System.nanoTime();
+                publish(null);
+                if (inserted) {
+                    stats.record("publish", start, graph.vertices.size(), "words");
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        ingestionStats = stats;
+        return count;
+    }
+
+    /**
+     * Runs tasks on a pool and waits for all of them
+     * 
+     * @param pool the pool
+     * @param tasks the tasks
+     * @return the results of the tasks, in the same order
+     * @throws IOException if a task failed to read the file
+     */
+    private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks)
+        throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while reading the dictionary", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause; // including UncheckedIOException
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Gets the time taken by every stage of the last {@link #populateGraphInParallel(String)}
+     * 
+     * @return the stats, null before the first call
+     */
+    public IngestionStats getIngestionStats() {
+        return ingestionStats;
+    }
+
+    /**
+     * Runs {@link #populateGraph(String)} on a background thread, so the caller and the queries
+     * are not held up while the file is read
+     * 
+     * @param filepath file path to the dictionary
+     * @return the number of words read, once the new graph has been published
+     */
+    public CompletableFuture<Integer> populateGraphInBackground(String filepath) {
+        writeLock.lock();
+        try {
+            if (background == null) {
+                background = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "GraphProcessor writer");
+                    thread.setDaemon(true); // don't keep the program alive
+                    return thread;
+                });
+            }
+        } finally {
+            writeLock.unlock();
         }
-        return array.length;
+        return CompletableFuture.supplyAsync(() -> populateGraph(filepath), background);
     }
 
 
@@ -125,8 +733,36 @@ public class GraphProcessor {
     public List<String> getShortestPath(String word1, String word2) {
         word1 = word1.toUpperCase();
         word2 = word2.toUpperCase();
-        shortestPathPrecomputation();
-        return data.get(word1).get(word2);
+        QueryMode mode = queryMode;
+        Snapshot snapshot = snapshot(mode);
+        int source = snapshot.graph.getId(word1);
+        int target = snapshot.graph.getId(word2);
+        Searches search = searches.get();
+        search.lastCount = 0;
+        if (!snapshot.components.isConnected(source, target)) {
+            return new ArrayList<>(); // unknown word or no path, nothing to search
+        }
+        if (mode == QueryMode.CACHED) {
+            return sourceCache.getPath(snapshot.graph, snapshot.version, source, target);
+        }
+        if (mode == QueryMode.MAPPED) {
+            if (!snapshot.mapped.acquire()) {
+                return getShortestPath(word1, word2); // replaced meanwhile, read the new table
+            }
+            try {
+                return snapshot.mapped.getPath(snapshot.graph, source, target);
+            } finally {
+                snapshot.mapped.release();
+            }
+        }
+        if (mode != QueryMode.PRECOMPUTED) {
+            if (searchOnDemand(mode, snapshot, search, source, target) <= 0) {
+                return new ArrayList<>(); // same word, unreachable or unknown word
+            }
+            return mode == QueryMode.ON_DEMAND ? search.bidirectional.getPath(snapshot.graph)
+                : search.aStar.getPath(snapshot.graph);
+        }
+        return snapshot.table.getPath(snapshot.graph, source, target);
     }
 
     /**
@@ -145,89 +781,391 @@ public class GraphProcessor {
     public Integer getShortestDistance(String word1, String word2) {
         word1 = word1.toUpperCase();
         word2 = word2.toUpperCase();
-        shortestPathPrecomputation();
-        if (data.get(word1).get(word2).isEmpty())
-            return -1;
-        else
-            return data.get(word1).get(word2).size() - 1;
+        QueryMode mode = queryMode;
+        Snapshot snapshot = snapshot(mode);
+        int source = snapshot.graph.getId(word1);
+        int target = snapshot.graph.getId(word2);
+        Searches search = searches.get();
+        search.lastCount = 0;
+        int distance;
+        if (!snapshot.components.isConnected(source, target)) {
+            distance = -1; // unknown word or no path, nothing to search
+        } else if (mode == QueryMode.CACHED) {
+            distance = sourceCache.getDistance(snapshot.graph, snapshot.version, source, target);
+        } else if (mode == QueryMode.MAPPED) {
+            if (!snapshot.mapped.acquire()) {
+                return getShortestDistance(word1, word2); // replaced meanwhile, read the new table
+            }
+            try {
+                distance = snapshot.mapped.getDistance(source, target);
+            } finally {
+                snapshot.mapped.release();
+            }
+        } else if (mode != QueryMode.PRECOMPUTED) {
+            distance = searchOnDemand(mode, snapshot, search, source, target);
+        } else {
+            distance = snapshot.table.getDistance(source, target);
+        }
+        return distance <= 0 ? -1 : distance; // same word, unreachable or unknown word
     }
 
     /**
-     * Computes shortest paths and distances between all possible pairs of vertices. This method is
-     * called after every set of updates in the graph to recompute the path information. Any
-     * shortest path algorithm can be used (Djikstra's or Floyd-Warshall recommended).
+     * Gets the distances of many pairs of words at once, like
+     * {@link #getShortestDistance(String, String)} for every pair. See
+     * {@link #getShortestPaths(List)} for how the batch is answered.
+     * 
+     * @param pairs the pairs, each an array of two words
+     * @return the distance of every pair, in the order of the pairs, -1 if there is no path
      */
-    public void shortestPathPrecomputation() {
-        ArrayList<VertexNode> vertexes = new ArrayList<>(); // array of vertexnode
-        // add vertexes into the array
-        for (String vertex : this.graph.getAllVertices()) {
-            vertexes.add(new VertexNode(vertex));
-        }
-        // build up the map of the map
-        for (int i = 0; i < vertexes.size(); i++) { // for each vertex
-            data.put(vertexes.get(i).name, dijkstra(vertexes, vertexes.get(i))); // put into the map
-            // create an array of new vertexnodes because we've changed pred, weight in the
-            // algorithm
-            for (int k = 0; k < vertexes.size(); k++) {
-                vertexes.set(k, new VertexNode(vertexes.get(k).name));
-            }
-        }
-
-    }
-
-    /**
-     * 
-     * 
-     * @param vertexes is the array of all vertexes
-     * @param source is vertex1, the starting vertex
-     * @return a map includes destinations (vertex2) and the path that leads to source (vertex1)
-     */
-    private Map<String, List<String>> dijkstra(ArrayList<VertexNode> vertexes, VertexNode source) {
-        PriorityQueue<VertexNode> pq = new PriorityQueue<>(); // tracking
-        Map<String, List<String>> otherVertex = new HashMap<>(); // the map that is returned
-        source.weight = 0;
-        pq.add(source); // add into the pq
-        // start running the algorithm
-        while (!pq.isEmpty()) {
-            VertexNode temp = pq.poll(); // return the minimal
-            temp.visited = true; // mark as visited
-            for (int i = 0; i < vertexes.size(); i++) { // for all vertexes
-                if (graph.isAdjacent(temp.name, vertexes.get(i).name) && !vertexes.get(i).visited) { 
-                 // if it is linked and it is not visited
-                    Integer length = temp.weight + 1; // total weight if it is linked
-                    if (vertexes.get(i).weight.compareTo(length) > 0) { 
-                        // compare present weight and potential total weight
-                        vertexes.get(i).weight = length;
-                        vertexes.get(i).pred = temp;
-                        // if it is already in the pq, refresh its weight and pred
-                        if (!pq.contains(vertexes.get(i))) { // if it is not, add it
-                            pq.add(vertexes.get(i));
-                        }
+    public List<Integer> getShortestDistances(List<String[]> pairs) {
+        int[] distances = new int[pairs.size()];
+        answerBatch(pairs, distances, null);
+        List<Integer> result = new ArrayList<>(distances.length);
+        for (int distance : distances) {
+            result.add(distance <= 0 ? -1 : distance); // same word, unreachable or unknown word
+        }
+        return result;
+    }
+
+    /**
+     * Gets the shortest paths of many pairs of words at once, like
+     * {@link #getShortestPath(String, String)} for every pair.
+     * 
+     * The whole batch reads one snapshot and every distinct word is looked up once. Pairs of
+     * different components are answered from the component index. In PRECOMPUTED and MAPPED mode
+     * the other pairs are read from the table. In the other modes the pairs are grouped by their
+     * first word, and one {@link BreadthFirstSearch} from every distinct first word answers all
+     * the pairs of its group. The searches are spread over {@link #getParallelism()} threads.
+     * 
+     * @param pairs the pairs, each an array of two words
+     * @return the path of every pair, in the order of the pairs, empty if there is no path
+     */
+    public List<List<String>> getShortestPaths(List<String[]> pairs) {
+        List<List<String>> paths = new ArrayList<>(pairs.size());
+        answerBatch(pairs, new int[pairs.size()], paths);
+        return paths;
+    }
+
+    /**
+     * Answers a batch of queries
+     * 
+     * @param pairs the pairs, each an array of two words
+     * @param distances filled with the distance of every pair, -1 if there is no path
+     * @param paths empty list filled with the path of every pair, null if paths are not needed
+     */
+    private void answerBatch(List<String[]> pairs, int[] distances, List<List<String>> paths) {
+        QueryMode mode = queryMode;
+        boolean fromTable = mode == QueryMode.PRECOMPUTED || mode == QueryMode.MAPPED;
+        Snapshot snapshot = snapshot(fromTable ? mode : null);
+        CsrGraph<String> graph = snapshot.graph;
+        Map<String, Integer> ids = new HashMap<>(); // id of every word of the batch
+        int[] targets = new int[pairs.size()];
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>(); // source -> its pairs
+        if (mode == QueryMode.MAPPED && !snapshot.mapped.acquire()) {
+            answerBatch(pairs, distances, paths); // replaced meanwhile, read the new table
+            return;
+        }
+        try {
+            for (int k = 0; k < pairs.size(); k++) {
+                String[] pair = pairs.get(k);
+                if (pair.length != 2) {
+                    String words = Arrays.toString(pair);
+                    throw new IllegalArgumentException("a pair needs two words: " + words);
+                }
+                int source = ids.computeIfAbsent(pair[0], word -> graph.getId(word.toUpperCase()));
+                int target = ids.computeIfAbsent(pair[1], word -> graph.getId(word.toUpperCase()));
+                targets[k] = target;
+                distances[k] = -1;
+                if (paths != null) {
+                    paths.add(new ArrayList<>());
+                }
+                if (source == target || !snapshot.components.isConnected(source, target)) {
+                    continue; // same word, unknown word or no path
+                } else if (mode == QueryMode.PRECOMPUTED) {
+                    distances[k] = snapshot.table.getDistance(source, target);
+                    if (paths != null) {
+                        paths.set(k, snapshot.table.getPath(graph, source, target));
                     }
+                } else if (mode == QueryMode.MAPPED) {
+                    distances[k] = snapshot.mapped.getDistance(source, target);
+                    if (paths != null) {
+                        paths.set(k, snapshot.mapped.getPath(graph, source, target));
+                    }
+                } else {
+                    groups.computeIfAbsent(source, key -> new ArrayList<>()).add(k);
                 }
             }
+        } finally {
+            if (mode == QueryMode.MAPPED) {
+                snapshot.mapped.release();
+            }
         }
-        // add path with its destination into the map that will be returned
-        for (int k = 0; k < vertexes.size(); k++) {
-            List<String> path = new ArrayList<>(); // store the path
-            VertexNode temp = vertexes.get(k); // begin with the destination
-            while (true) {
-                if (temp.pred == null) { // if it reaches the source or it is not reachable
-                    if (path.isEmpty()) { // if the path is empty, it is not reachable or it is the
-                                          // source itself
-                        otherVertex.put(vertexes.get(k).name, path);
-                    } else {
-                        path.add(0, vertexes.get(k).name);
-                        Collections.reverse(path);
-                        otherVertex.put(vertexes.get(k).name, path);
-                    }
-                    break; // break from the while loop
-                } else { // if it is still in the process, add it into the path
-                    path.add(temp.pred.name);
+        if (groups.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Integer, List<Integer>>> sources = new ArrayList<>(groups.entrySet());
+        int threads = Math.min(parallelism, sources.size());
+        if (threads == 1) {
+            searchGroups(graph, sources, targets, distances, paths);
+            return;
+        }
+        // every task searches from its own sources and only writes the answers of their pairs
+        int slice = (sources.size() + threads * 4 - 1) / (threads * 4);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < sources.size(); from += slice) {
+            List<Map.Entry<Integer, List<Integer>>> part =
+                sources.subList(from, Math.min(sources.size(), from + slice));
+            tasks.add(() -> {
+                searchGroups(graph, part, targets, distances, paths);
+                return null;
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while answering a batch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs one breadth first search from the first word of every group of pairs and answers the
+     * pairs of the group
+     * 
+     * @param graph the graph to search
+     * @param groups id of a first word -> positions of its pairs in the batch
+     * @param targets id of the second word of every pair of the batch
+     * @param distances filled with the distances of the pairs of the groups
+     * @param paths filled with the paths of the pairs of the groups, null if not needed
+     */
+    private static void searchGroups(CsrGraph<String> graph,
+        List<Map.Entry<Integer, List<Integer>>> groups, int[] targets, int[] distances,
+        List<List<String>> paths) {
+        int bound = graph.getIdBound();
+        int[] distance = new int[bound];
+        int[] predecessor = new int[bound];
+        int[] queue = new int[bound];
+        for (Map.Entry<Integer, List<Integer>> group : groups) {
+            BreadthFirstSearch.search(graph, group.getKey(), distance, predecessor, queue);
+            for (int k : group.getValue()) {
+                distances[k] = distance[targets[k]];
+                if (paths != null) {
+                    paths.set(k, pathOf(graph, predecessor, targets[k]));
                 }
-                temp = temp.pred;
             }
         }
-        return otherVertex;
+    }
+
+    /**
+     * Gets the path to a vertex from the predecessors of a breadth first search
+     * 
+     * @param graph the graph searched
+     * @param predecessor the predecessors filled by the search
+     * @param target id of the last vertex
+     * @return the vertices from the source of the search to the target
+     */
+    private static List<String> pathOf(CsrGraph<String> graph, int[] predecessor, int target) {
+        List<String> path = new ArrayList<>();
+        for (int v = target; v != BreadthFirstSearch.UNREACHED; v = predecessor[v]) {
+            path.add(graph.getVertex(v));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Gets the snapshot a query reads. If the graph was changed directly since the snapshot was
+     * published, a new one is published, unless a writer holds the lock: the query then reads the
+     * old snapshot rather than wait. Only a PRECOMPUTED or MAPPED query with no table at all waits
+     * for one to be computed.
+     * 
+     * @param mode the query mode
+     * @return the snapshot, with the table of a PRECOMPUTED or MAPPED mode
+     */
+    private Snapshot snapshot(QueryMode mode) {
+        Snapshot snapshot = published.get();
+        if (snapshot.version != graph.getVersion() && writeLock.tryLock()) {
+            try {
+                snapshot = publish(mode);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        if (!snapshot.isReady(mode)) {
+            writeLock.lock();
+            try {
+                snapshot = publish(mode);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Publishes a snapshot of the current graph if the published one is out of date. The shortest
+     * path table is brought up to date as well if there is one, or if it is needed. The mapped
+     * table and the landmarks are only computed again when they are needed, they can not be
+     * updated. Must be called with the write lock held.
+     * 
+     * @param mode query mode whose data the snapshot must have, null for none
+     * @return the published snapshot
+     */
+    private Snapshot publish(QueryMode mode) {
+        Snapshot snapshot = published.get();
+        if (snapshot.version == graph.getVersion() && snapshot.isReady(mode)) {
+            return snapshot;
+        }
+        if (table != null || mode == QueryMode.PRECOMPUTED) {
+            ensurePrecomputed();
+        }
+        if (mode == QueryMode.MAPPED && (mappedTable == null
+            || mappedVersion != graph.getVersion())) {
+            try {
+                mappedTable = MappedDistanceTable.compute(graph.freeze(), mappedDirectory,
+                    parallelism);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            mappedVersion = graph.getVersion();
+        }
+        if (mode == QueryMode.LANDMARK && (landmarks == null
+            || landmarkVersion != graph.getVersion())) {
+            landmarks = LandmarkOracle.compute(graph.freeze(), landmarkCount);
+            landmarkVersion = graph.getVersion();
+        }
+        snapshot = current();
+        install(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Publishes a snapshot. A mapped table which the snapshot no longer has is retired, so that
+     * its disk space comes back as soon as the queries still reading it are done, rather than when
+     * the garbage collector unmaps it. Must be called with the write lock held.
+     * 
+     * @param snapshot the snapshot
+     */
+    private void install(Snapshot snapshot) {
+        Snapshot previous = published.getAndSet(snapshot);
+        if (previous.mapped != null && previous.mapped != snapshot.mapped) {
+            previous.mapped.retire();
+        }
+        if (mappedTable != null && mappedTable != snapshot.mapped) {
+            mappedTable.retire();
+            mappedTable = null;
+        }
+    }
+
+    /**
+     * Makes a snapshot of the current graph, with the components and with the data which is up
+     * to date with the graph. Must be called with the write lock held.
+     * 
+     * @return the snapshot, not published yet
+     */
+    private Snapshot current() {
+        CsrGraph<String> frozen = graph.freeze();
+        int version = graph.getVersion();
+        return new Snapshot(frozen, version, precomputedVersion == version ? table : null,
+            mappedVersion == version ? mappedTable : null,
+            landmarkVersion == version ? landmarks : null, components.freeze(frozen));
+    }
+
+    /**
+     * Brings the precomputed data up to date if the graph has changed since it was computed. Small
+     * changes are applied to the existing table with
+     * {@link PathTable#update(IndexedGraph, GraphChangeLog)}, otherwise the table is computed
+     * again. Repeated queries on an unchanged graph are answered directly from the precomputed
+     * data. Must be called with the write lock held.
+     */
+    private void ensurePrecomputed() {
+        if (table == null || changes.isOverflowed()) {
+            computeTable();
+        } else if (precomputedVersion != graph.getVersion()) {
+            PathTable updated = table.update(graph.freeze(), changes);
+            if (updated != null) {
+                table = updated;
+                precomputedVersion = graph.getVersion();
+                changes.clear(changeLimit());
+            } else {
+                computeTable();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of graph changes worth applying to the table one by one, past that a new
+     * precomputation is cheaper
+     * 
+     * @return the most changes kept in {@link #changes}
+     */
+    private int changeLimit() {
+        return Math.max(64, graph.getIdBound());
+    }
+
+    /**
+     * Computes the table from scratch. Must be called with the write lock held.
+     */
+    private void computeTable() {
+        table = PathTable.compute(graph.freeze(), parallelism);
+        precomputedVersion = graph.getVersion();
+        changes.clear(changeLimit());
+    }
+
+    /**
+     * Writes the graph and, if they are up to date, the precomputed shortest paths to a
+     * {@link GraphSnapshotFile}, which {@link GraphSnapshotFile#loadOrBuild(String, String,
+     * boolean)} can read back instead of building the graph again.
+     * 
+     * @param snapshotPath file to write, replaced if it exists
+     * @param dictionaryPath the dictionary the graph was built from, its hash is kept in the file
+     * @throws IOException if a file can not be read or written
+     */
+    public void saveSnapshot(String snapshotPath, String dictionaryPath) throws IOException {
+        writeLock.lock();
+        try {
+            Snapshot snapshot = publish(null);
+            GraphSnapshotFile.write(snapshot.graph, snapshot.table, snapshotPath, dictionaryPath);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the published snapshot has precomputed shortest paths
+     * 
+     * @return true if PRECOMPUTED queries need no new computation
+     */
+    boolean hasPrecomputedTable() {
+        Snapshot snapshot = published.get();
+        return snapshot.table != null && snapshot.version == graph.getVersion();
+    }
+
+    /**
+     * Computes shortest paths and distances between all possible pairs of vertices. This method is
+     * called after every set of updates in the graph to recompute the path information. The graph
+     * is unweighted, so a breadth first search ({@link BreadthFirstSearch}) is run from every
+     * vertex, which takes O(V+E) per vertex. The searches run on a {@link CsrGraph} snapshot of
+     * the graph, they are independent and are spread over {@link #getParallelism()} threads.
+     * Queries from other threads keep reading the old table until the new one is published.
+     */
+    public void shortestPathPrecomputation() {
+        writeLock.lock();
+        try {
+            computeTable();
+            install(current());
+        } finally {
+            writeLock.unlock();
+        }
     }
 }
@@ -0,0 +1,393 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary file holding a built word graph, so that a {@link GraphProcessor} can be started without
+ * reading the dictionary and finding the edges again.
+ *
+ * The file starts with a header of {@link #HEADER_SIZE} bytes: the magic number, the format
+ * version, the flags, the length and CRC32 checksum of the rest of the file, and the SHA-256 hash
+ * of the dictionary the graph was built from. The rest of the file is the payload, with all
+ * numbers big endian:
+ *
+ * 1. the number of words n and the number of neighbor entries m (two per edge).
+ *
+ * 2. the words, each as its length in bytes and its UTF-8 bytes. The word at position v has id v,
+ * the ids of removed vertices are left out so the ids are 0 to n-1.
+ *
+ * 3. the adjacency in compressed sparse row form, like {@link CsrGraph}: n+1 offsets, then the m
+ * neighbor ids.
+ *
+ * 4. if {@link #FLAG_TABLE} is set, the {@link PathTable}: n rows of n short distances, then n rows
+ * of n int predecessors.
+ *
+ * The file is written to a temporary file first and moved in place, so a reader never sees half a
+ * file. It is read back through a memory mapped buffer. A file made from another dictionary or by
+ * another format version is stale, {@link #read(String, String)} returns null for it and
+ * {@link #loadOrBuild(String, String, boolean)} builds the graph again.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class GraphSnapshotFile {
+
+    public static final int MAGIC = 0x57475048; // "WGPH"
+    public static final int FORMAT_VERSION = 1;
+    public static final int FLAG_TABLE = 1; // the shortest path table is saved
+    public static final int HEADER_SIZE = 64;
+
+    private static final int HASH_SIZE = 32; // bytes of a SHA-256 hash
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes a graph and its shortest path table to a file. The table is left out if it would make
+     * the file too large to be mapped in one buffer.
+     *
+     * @param graph the graph
+     * @param table shortest paths of the graph, null to leave them out
+     * @param snapshotPath file to write, replaced if it exists
+     * @param dictionaryPath the dictionary the graph was built from
+     * @throws IOException if a file can not be read or written
+     */
+    public static void write(CsrGraph<String> graph, PathTable table, String snapshotPath,
+        String dictionaryPath) throws IOException {
+        byte[] hash = hashOf(dictionaryPath);
+        int bound = graph.getIdBound();
+        int[] newId = new int[bound]; // dense id of every id, -1 for unused ids
+        int n = 0;
+        for (int id = 0; id < bound; id++) {
+            newId[id] = graph.getVertex(id) == null ? -1 : n++;
+        }
+        int[] oldId = new int[n];
+        byte[][] words = new byte[n][];
+        long payload = 8;
+        int m = 0;
+        for (int id = 0; id < bound; id++) {
+            if (newId[id] >= 0) {
+                oldId[newId[id]] = id;
+                words[newId[id]] = graph.getVertex(id).getBytes(StandardCharsets.UTF_8);
+                payload += 4 + words[newId[id]].length;
+                m += graph.getDegree(id);
+            }
+        }
+        payload += 4L * (n + 1) + 4L * m;
+        long tableSize = 6L * n * n;
+        boolean withTable = table != null && HEADER_SIZE + payload + tableSize <= Integer.MAX_VALUE;
+        if (withTable) {
+            payload += tableSize;
+        }
+
+        Path target = Paths.get(snapshotPath).toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(),
+            ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_SIZE);
+                CRC32 checksum = new CRC32();
+                // not closed, that would close the channel before the header is written
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum),
+                    BUFFER_SIZE));
+                ByteBuffer row = ByteBuffer.allocate(4 * Math.max(n + 1, 1));
+                out.writeInt(n);
+                out.writeInt(m);
+                for (byte[] word : words) {
+                    out.writeInt(word.length);
+                    out.write(word);
+                }
+                int offset = 0;
+                for (int v = 0; v < n; v++) {
+                    row.putInt(offset);
+                    offset += graph.getDegree(oldId[v]);
+                }
+                row.putInt(offset);
+                out.write(row.array(), 0, row.position());
+                for (int v = 0; v < n; v++) {
+                    row.clear();
+                    for (int i = 0; i < graph.getDegree(oldId[v]); i++) {
+                        row.putInt(newId[graph.getNeighborId(oldId[v], i)]);
+                    }
+                    out.write(row.array(), 0, row.position());
+                }
+                if (withTable) {
+                    for (int s = 0; s < n; s++) {
+                        row.clear();
+                        for (int t = 0; t < n; t++) {
+                            row.putShort((short) table.getDistance(oldId[s], oldId[t]));
+                        }
+                        out.write(row.array(), 0, row.position());
+                    }
+                    for (int s = 0; s < n; s++) {
+                        row.clear();
+                        for (int t = 0; t < n; t++) {
+                            int predecessor = table.getPredecessor(oldId[s], oldId[t]);
+                            row.putInt(predecessor < 0 ? predecessor : newId[predecessor]);
+                        }
+                        out.write(row.array(), 0, row.position());
+                    }
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(withTable ? FLAG_TABLE : 0)
+                    .putInt(0).putLong(payload).putLong(checksum.getValue()).put(hash);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a graph written by {@link #write(CsrGraph, PathTable, String, String)} into a new
+     * processor, with its shortest path table if the file has one.
+     *
+     * @param snapshotPath the file
+     * @param dictionaryPath the dictionary the graph should have been built from, null to skip the
+     *        check
+     * @return the processor, or null if the file was made from another dictionary or by another
+     *         format version
+     * @throws IOException if the file can not be read or is damaged
+     */
+    public static GraphProcessor read(String snapshotPath, String dictionaryPath)
+        throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(snapshotPath),
+            StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("snapshot too large to map: " + snapshotPath);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || map.getInt() != MAGIC) {
+                throw new IOException("not a graph snapshot: " + snapshotPath);
+            }
+            if (map.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int flags = map.getInt();
+            map.getInt(); // reserved
+            long payload = map.getLong();
+            long expected = map.getLong();
+            byte[] hash = new byte[HASH_SIZE];
+            map.get(hash);
+            if (dictionaryPath != null && !Arrays.equals(hash, hashOf(dictionaryPath))) {
+                return null;
+            }
+            if (payload != size - HEADER_SIZE) {
+                throw new IOException("truncated graph snapshot: " + snapshotPath);
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(map.duplicate());
+            if (checksum.getValue() != expected) {
+                throw new IOException("damaged graph snapshot: " + snapshotPath);
+            }
+            return read(map, (flags & FLAG_TABLE) != 0);
+        }
+    }
+
+    /**
+     * Reads the payload of a checked file
+     *
+     * @param map the file, at the start of the payload
+     * @param withTable whether the file has a shortest path table
+     * @return the processor
+     * @throws IOException if the payload does not describe a graph, the lengths and ids in it
+     *         are checked against the size of the file before anything is read or made
+     */
+    private static GraphProcessor read(MappedByteBuffer map, boolean withTable)
+        throws IOException {
+        if (map.remaining() < 8) {
+            throw new IOException("graph snapshot has no word count");
+        }
+        int n = map.getInt();
+        int m = map.getInt();
+        // every word takes at least its length and its offset, every neighbor entry its id
+        if (n < 0 || m < 0 || 8L * n + 4 + 4L * m > map.remaining()) {
+            throw new IOException("graph snapshot too short for " + n + " words and " + m
+                + " neighbor ids");
+        }
+        Graph.Builder<String> builder = new Graph.Builder<>(n, m / 2);
+        for (int v = 0; v < n; v++) {
+            if (map.remaining() < 4) {
+                throw new IOException("graph snapshot ends in the words");
+            }
+            int length = map.getInt();
+            if (length < 0 || length > map.remaining()) {
+                throw new IOException("bad word length in graph snapshot: " + length);
+            }
+            byte[] word = new byte[length];
+            map.get(word);
+            if (builder.addVertex(new String(word, StandardCharsets.UTF_8)) != v) {
+                throw new IOException("repeated word in graph snapshot");
+            }
+        }
+        if (4L * (n + 1) + 4L * m > map.remaining()) {
+            throw new IOException("graph snapshot ends in the adjacency");
+        }
+        int[] offsets = new int[n + 1];
+        map.asIntBuffer().get(offsets);
+        map.position(map.position() + 4 * offsets.length);
+        if (offsets[0] != 0 || offsets[n] != m) {
+            throw new IOException("offsets in graph snapshot do not cover the neighbor ids");
+        }
+        int[] targets = new int[m];
+        map.asIntBuffer().get(targets);
+        map.position(map.position() + 4 * targets.length);
+        for (int v = 0; v < n; v++) {
+            if (offsets[v + 1] < offsets[v] || offsets[v + 1] > m) {
+                throw new IOException("bad offset in graph snapshot: " + offsets[v + 1]);
+            }
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                if (targets[i] < 0 || targets[i] >= n) {
+                    throw new IOException("bad neighbor id in graph snapshot: " + targets[i]);
+                }
+                if (v < targets[i]) {
+                    builder.addEdge(v, targets[i]); // every edge is stored from both ends
+                }
+            }
+        }
+        if (map.remaining() != (withTable ? 6L * n * n : 0)) {
+            throw new IOException("wrong table size in graph snapshot");
+        }
+        PathTable table = null;
+        if (withTable) {
+            short[][] distances = new short[n][n];
+            for (short[] row : distances) {
+                map.asShortBuffer().get(row);
+                map.position(map.position() + 2 * n);
+            }
+            int[][] predecessors = new int[n][n];
+            for (int s = 0; s < n; s++) {
+                map.asIntBuffer().get(predecessors[s]);
+                map.position(map.position() + 4 * n);
+                if (!isConsistent(distances[s], predecessors[s], s, offsets, targets)) {
+                    throw new IOException("inconsistent shortest paths from " + s
+                        + " in graph snapshot");
+                }
+            }
+            table = PathTable.of(predecessors, distances);
+        }
+        return new GraphProcessor(builder.build(), table);
+    }
+
+    /**
+     * Checks the row of a source the way a {@link BreadthFirstSearch} fills it: the source is at
+     * distance 0, and every other reached vertex has as predecessor a neighbor which is one edge
+     * closer to the source. Following the predecessors back from any vertex then always reaches
+     * the source along edges of the graph.
+     *
+     * @param distance distance row of the source, -1 for unreached vertices
+     * @param predecessor predecessor row of the source
+     * @param source the source
+     * @param offsets start of the neighbor ids of every vertex in targets
+     * @param targets neighbor ids of all the vertices
+     * @return true if the rows are consistent with each other and with the graph
+     */
+    private static boolean isConsistent(short[] distance, int[] predecessor, int source,
+        int[] offsets, int[] targets) {
+        for (int v = 0; v < distance.length; v++) {
+            int d = distance[v];
+            int p = predecessor[v];
+            if (d <= 0) {
+                if (p != BreadthFirstSearch.UNREACHED || d < -1 || (d == 0) != (v == source)) {
+                    return false; // only the source is at 0, unreached vertices are at -1
+                }
+            } else if (p < 0 || p >= distance.length || distance[p] != d - 1) {
+                return false;
+            } else {
+                int i = offsets[v];
+                while (i < offsets[v + 1] && targets[i] != p) {
+                    i++;
+                }
+                if (i == offsets[v + 1]) {
+                    return false; // the predecessor is not a neighbor
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a snapshot if it is up to date with the dictionary. Otherwise, or if the snapshot is
+     * missing or damaged, builds the graph from the dictionary and writes a new snapshot.
+     *
+     * @param snapshotPath the snapshot file
+     * @param dictionaryPath the dictionary
+     * @param precompute whether the processor should have precomputed shortest paths, which are
+     *        then saved in the snapshot as well
+     * @return the ready processor
+     * @throws IOException if the dictionary can not be read or the snapshot can not be written
+     */
+    public static GraphProcessor loadOrBuild(String snapshotPath, String dictionaryPath,
+        boolean precompute) throws IOException {
+        GraphProcessor processor = null;
+        if (Files.exists(Paths.get(snapshotPath))) {
+            try {
+                processor = read(snapshotPath, dictionaryPath);
+            } catch (IOException e) {
+                processor = null; // damaged, built again below
+            }
+        }
+        boolean changed = false;
+        if (processor == null) {
+            processor = new GraphProcessor();
+            processor.populateGraph(dictionaryPath);
+            changed = true;
+        }
+        if (precompute && !processor.hasPrecomputedTable()) {
+            processor.shortestPathPrecomputation();
+            changed = true;
+        }
+        if (changed) {
+            processor.saveSnapshot(snapshotPath, dictionaryPath);
+        }
+        return processor;
+    }
+
+    /**
+     * Gets the SHA-256 hash of the content of a file
+     *
+     * @param filepath the file
+     * @return the hash
+     * @throws IOException if the file can not be read
+     */
+    public static byte[] hashOf(String filepath) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath),
+            StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+}
@@ -1,7 +1,10 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -332,5 +335,166 @@ public class GraphTest {
 		}
 		assertEquals("num of vertices in the graph", numOfVertices-2, verticesCount);
 	}
+	
+	@Test
+	public final void vertexIdsShouldBeStableAndMatchNeighbors() {
+		Graph<String> graph = new Graph<>();
+		for (String itrVertex : vertices)
+			graph.addVertex(itrVertex);
+		graph.addEdge(vertices.get(0), vertices.get(1));
+		graph.addEdge(vertices.get(1), vertices.get(2));
+		int id1 = graph.getId(vertices.get(1));
+		int id2 = graph.getId(vertices.get(2));
+		
+		graph.removeVertex(vertices.get(0));
+		assertEquals("id of a removed vertex", -1, graph.getId(vertices.get(0)));
+		assertEquals("id after removing another vertex", id1, graph.getId(vertices.get(1)));
+		assertEquals("vertex of an id", vertices.get(2), graph.getVertex(id2));
+		assertEquals("number of neighbor ids", 1, graph.getDegree(id1));
+		assertEquals("neighbor id", id2, graph.getNeighborId(id1, 0));
+		
+		for (String itrVertex : graph.getAllVertices()) {
+			int id = graph.getId(itrVertex);
+			int numOfEdges = 0;
+			for (String itrNeighbor : graph.getNeighbors(itrVertex))
+				numOfEdges++;
+			assertEquals(String.format("number of neighbor ids for vertex=%s", itrVertex), numOfEdges, graph.getDegree(id));
+			for (int i = 0; i < graph.getDegree(id); i++)
+				assertEquals(String.format("neighbor ids of vertex=%s", itrVertex), 
+						true, graph.isAdjacent(itrVertex, graph.getVertex(graph.getNeighborId(id, i))));
+		}
+	}
+	
+	@Test
+	public final void freezeShouldKeepEdgesAndRejectWrites() {
+		Graph<String> graph = new Graph<>();
+		for (String itrVertex : vertices)
+			graph.addVertex(itrVertex);
+		graph.addEdge(vertices.get(0), vertices.get(1));
+		graph.addEdge(vertices.get(1), vertices.get(2));
+		CsrGraph<String> snapshot = graph.freeze();
+		graph.removeEdge(vertices.get(0), vertices.get(1));
+		
+		assertEquals("number of edges in the snapshot", 2, snapshot.getEdgeCount());
+		assertEquals("edge kept in the snapshot", true, snapshot.isAdjacent(vertices.get(1), vertices.get(0)));
+		assertEquals("edge removed from the graph", false, graph.isAdjacent(vertices.get(1), vertices.get(0)));
+		int verticesCount = 0;
+		for (String itrVertex : snapshot.getAllVertices()) {
+			verticesCount++;
+			assertEquals(String.format("id of vertex=%s", itrVertex), graph.getId(itrVertex), snapshot.getId(itrVertex));
+		}
+		assertEquals("number of vertices in the snapshot", numOfVertices, verticesCount);
+		try {
+			snapshot.addEdge(vertices.get(3), vertices.get(4));
+			fail("addEdge on a snapshot should throw");
+		} catch (UnsupportedOperationException e) {
+			assertEquals("edge not added", false, snapshot.isAdjacent(vertices.get(3), vertices.get(4)));
+		}
+	}
+	
+	@Test
+	public final void readsShouldNotChangeTheGraph() {
+		Graph<String> graph = new Graph<>();
+		for (String itrVertex : vertices)
+			graph.addVertex(itrVertex);
+		graph.addEdge(vertices.get(0), vertices.get(1));
+		int edgesSize = graph.edges.size();
+		int version = graph.getVersion();
+		
+		for (String itrVertex : vertices) {
+			for (String itrNeighbor : vertices)
+				graph.isAdjacent(itrVertex, itrNeighbor);
+			graph.getNeighbors(itrVertex);
+		}
+		graph.removeEdge(vertices.get(2), vertices.get(3)); // no such edge
+		assertEquals("number of adjacency sets after reads", edgesSize, graph.edges.size());
+		assertEquals("version after reads", version, graph.getVersion());
+		assertEquals("same empty neighbors for vertices without edges", 
+				true, graph.getNeighbors(vertices.get(2)) == graph.getNeighbors(vertices.get(3)));
+		assertEquals("no neighbors", false, graph.getNeighbors(vertices.get(2)).iterator().hasNext());
+		try {
+			((Set<String>) graph.getNeighbors(vertices.get(2))).add(vertices.get(4));
+			fail("the empty neighbors should not be writable");
+		} catch (UnsupportedOperationException e) {
+			assertEquals("edge not added", false, graph.isAdjacent(vertices.get(2), vertices.get(4)));
+		}
+	}
+	
+	@Test
+	public final void removeVerticesShouldRemoveEveryEdgeOfTheBatch() {
+		Graph<String> graph = new Graph<>();
+		GraphChangeLog log = new GraphChangeLog(100);
+		for (String itrVertex : vertices)
+			graph.addVertex(itrVertex);
+		for (int i = 0; i + 1 < numOfVertices; i++)
+			graph.addEdge(vertices.get(i), vertices.get(i + 1)); // a chain through every vertex
+		graph.addEdge(vertices.get(0), vertices.get(2));
+		graph.addGraphListener(log);
+		int id3 = graph.getId(vertices.get(3));
+		
+		List<String> batch = new ArrayList<>();
+		batch.add(vertices.get(1));
+		batch.add(vertices.get(2));
+		batch.add(vertices.get(2)); // repeated
+		batch.add("not in the graph");
+		batch.add(null);
+		assertEquals("number of removed vertices", 2, graph.removeVertices(batch));
+		assertEquals("number of vertices", numOfVertices - 2, graph.vertices.size());
+		assertEquals("edge between two kept vertices", true, graph.isAdjacent(vertices.get(3), vertices.get(4)));
+		assertEquals("neighbors of a vertex next to the batch", false, graph.getNeighbors(vertices.get(0)).iterator().hasNext());
+		assertEquals("number of neighbor ids next to the batch", 1, graph.getDegree(id3));
+		for (HashSet<String> itrNeighbors : graph.edges.values())
+			for (String itrNeighbor : batch)
+				assertEquals("edge to a removed vertex", false, itrNeighbors.contains(itrNeighbor));
+		
+		int edgesRemoved = 0;
+		int verticesRemoved = 0;
+		for (int i = 0; i < log.size(); i++) {
+			if (log.getKind(i) == GraphChangeLog.EDGE_REMOVED)
+				edgesRemoved++;
+			else if (log.getKind(i) == GraphChangeLog.VERTEX_REMOVED)
+				verticesRemoved++;
+		}
+		assertEquals("edges removed", 4, edgesRemoved); // 0-1, 1-2, 0-2 and 2-3
+		assertEquals("vertices removed", 2, verticesRemoved);
+	}
+	
+	@Test
+	public final void builderShouldMatchPerElementGraph() {
+		Graph<String> expected = new Graph<>();
+		Graph.Builder<String> builder = new Graph.Builder<>(numOfVertices, 4);
+		for (String itrVertex : vertices) {
+			expected.addVertex(itrVertex);
+			builder.addVertex(itrVertex);
+		}
+		for (int i = 0; i + 1 < numOfVertices; i += 2) {
+			expected.addEdge(vertices.get(i), vertices.get(i + 1));
+			builder.addEdge(builder.addVertex(vertices.get(i)), builder.addVertex(vertices.get(i + 1)));
+		}
+		builder.addEdge(0, 1); // duplicate
+		builder.addEdge(2, 2); // loop
+		try {
+			builder.addEdge(0, numOfVertices);
+			fail("an edge to an id the builder did not give out should be rejected");
+		} catch (IllegalArgumentException e) {
+			// not recorded, the build below still matches
+		}
+		Graph<String> built = builder.build();
+		
+		assertEquals("vertices", expected.vertices, built.vertices);
+		assertEquals("edges", expected.edges, built.edges);
+		for (String itrVertex : vertices) {
+			int id = built.getId(itrVertex);
+			assertEquals(String.format("id of vertex=%s", itrVertex), expected.getId(itrVertex), id);
+			assertEquals(String.format("number of neighbor ids for vertex=%s", itrVertex), 
+					expected.getDegree(id), built.getDegree(id));
+		}
+		try {
+			builder.addVertex(vertices.get(0));
+			fail("a builder should not be used after build");
+		} catch (IllegalStateException e) {
+			assertEquals("vertices after build", numOfVertices, built.vertices.size());
+		}
+	}
 
 }
@@ -0,0 +1,53 @@
+/**
+ * A graph whose vertices are also known by dense int ids, so that algorithms can run on ints
+ * instead of hashing and comparing vertices.
+ *
+ * Every vertex gets an id when it is added. The id of a vertex never changes while the vertex is
+ * in the graph, and ids are between 0 (inclusive) and {@link #getIdBound()} (exclusive).
+ *
+ * @param <E> type of a vertex
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public interface IndexedGraph<E> extends GraphADT<E> {
+
+    /**
+     * Get the id of a vertex
+     *
+     * @param vertex the vertex
+     * @return the id of the vertex, or -1 if the vertex is null or not in the graph
+     */
+    public int getId(E vertex);
+
+    /**
+     * Get the vertex with an id
+     *
+     * @param id the id
+     * @return the vertex with the id, or null if no vertex in the graph has that id
+     */
+    public E getVertex(int id);
+
+    /**
+     * Get the bound of the ids, arrays indexed by vertex id need this length
+     *
+     * @return one more than the largest id given to a vertex
+     */
+    public int getIdBound();
+
+    /**
+     * Get the number of neighbors of a vertex
+     *
+     * @param id the id of the vertex
+     * @return the number of neighbors, 0 if no vertex has that id
+     */
+    public int getDegree(int id);
+
+    /**
+     * Get a neighbor of a vertex, neighbors are numbered from 0 to {@link #getDegree(int)} - 1
+     *
+     * @param id the id of the vertex
+     * @param index the number of the neighbor
+     * @return the id of the neighbor
+     */
+    public int getNeighborId(int id, int index);
+}
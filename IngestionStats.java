@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Time taken and items handled by every stage of a dictionary ingestion, so that the slow stage
+ * can be found.
+ *
+ * A stage is recorded once it is finished, with the number of items it handled (bytes, words or
+ * edges) and the name of that unit. The stages are kept in the order they ran.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class IngestionStats {
+
+    private List<String> names; // name of every stage
+    private List<Long> nanos; // time taken by every stage
+    private List<Long> items; // number of items handled by every stage
+    private List<String> units; // what the items of every stage are
+
+    /**
+     * Constructor for this class. Creates stats with no stage.
+     */
+    public IngestionStats() {
+        names = new ArrayList<>();
+        nanos = new ArrayList<>();
+        items = new ArrayList<>();
+        units = new ArrayList<>();
+    }
+
+    /**
+     * Records a finished stage
+     *
+     * @param name name of the stage
+     * @param start System.nanoTime() when the stage started
+     * @param count number of items the stage handled
+     * @param unit what the items are, such as "words"
+     * @return System.nanoTime() now, the start of the next stage
+     */
+    public long record(String name, long start, long count, String unit) {
+        long now = System.nanoTime();
+        names.add(name);
+        nanos.add(now - start);
+        items.add(count);
+        units.add(unit);
+        return now;
+    }
+
+    /**
+     * Gets the number of recorded stages
+     *
+     * @return number of stages
+     */
+    public int getStageCount() {
+        return names.size();
+    }
+
+    /**
+     * Gets the name of a stage
+     *
+     * @param stage number of the stage, in the order they ran
+     * @return the name
+     */
+    public String getName(int stage) {
+        return names.get(stage);
+    }
+
+    /**
+     * Gets the time a stage took
+     *
+     * @param stage number of the stage
+     * @return the time in milliseconds
+     */
+    public double getMillis(int stage) {
+        return nanos.get(stage) / 1e6;
+    }
+
+    /**
+     * Gets the number of items a stage handled
+     *
+     * @param stage number of the stage
+     * @return number of items
+     */
+    public long getItems(int stage) {
+        return items.get(stage);
+    }
+
+    /**
+     * Gets the number of items a stage handled per second
+     *
+     * @param stage number of the stage
+     * @return items per second, 0 if the stage took no measurable time
+     */
+    public double getThroughput(int stage) {
+        long time = nanos.get(stage);
+        return time == 0 ? 0 : items.get(stage) * 1e9 / time;
+    }
+
+    /**
+     * Gets the total time of all the stages
+     *
+     * @return the time in milliseconds
+     */
+    public double getTotalMillis() {
+        long total = 0;
+        for (long time : nanos) {
+            total += time;
+        }
+        return total / 1e6;
+    }
+
+    /**
+     * Gets one line per stage with its time, its items and its throughput
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int stage = 0; stage < names.size(); stage++) {
+            sb.append(String.format("%-24s %10.2f ms %12d %-6s %14.0f %s/s%n", names.get(stage),
+                getMillis(stage), items.get(stage), units.get(stage), getThroughput(stage),
+                units.get(stage)));
+        }
+        sb.append(String.format("%-24s %10.2f ms%n", "total", getTotalMillis()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+
+/**
+ * Distance bounds between any two vertices from the distances to a few landmark vertices (ALT:
+ * A*, landmarks and the triangle inequality).
+ *
+ * For a landmark L and vertices s and t, d(s,t) >= |d(L,s) - d(L,t)| and
+ * d(s,t) <= d(L,s) + d(L,t). The lower bound of a fixed target changes by at most 1 along an
+ * edge, so it is a consistent heuristic for an {@link AStarSearch}. If a landmark reaches exactly
+ * one of the two vertices, they are in different components and have no path at all.
+ *
+ * Landmarks are chosen by farthest point selection: the first is the vertex with the most
+ * neighbors, and every next one is the vertex farthest from the landmarks chosen so far. Only
+ * vertices reached by a landmark are candidates, so the landmarks spread over the component of
+ * the first one, which holds most of the words of a dictionary. The oracle keeps one row of short
+ * distances per landmark, k * V shorts in all. It is never changed once computed and can be read
+ * by several threads at once.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class LandmarkOracle {
+
+    private int[] landmarks; // id of every landmark
+    private short[][] distances; // distances[k][v] from landmark k to v, -1 if not reached
+
+    /**
+     * Constructor for this class
+     *
+     * @param landmarks id of every landmark
+     * @param distances row of distances of every landmark
+     */
+    private LandmarkOracle(int[] landmarks, short[][] distances) {
+        this.landmarks = landmarks;
+        this.distances = distances;
+    }
+
+    /**
+     * Chooses the landmarks of a graph and runs a {@link BreadthFirstSearch} from each of them
+     *
+     * @param graph the graph
+     * @param count number of landmarks, fewer are chosen if every reached vertex is a landmark
+     * @return the oracle
+     * @throws IllegalStateException if a distance is too long to be stored in a short
+     */
+    public static LandmarkOracle compute(IndexedGraph<?> graph, int count) {
+        int bound = graph.getIdBound();
+        int[] distance = new int[bound];
+        int[] predecessor = new int[bound];
+        int[] queue = new int[bound];
+        int[] nearest = new int[bound]; // distance to the nearest landmark, -1 if none reaches
+        Arrays.fill(nearest, BreadthFirstSearch.UNREACHED);
+        int[] landmarks = new int[count];
+        short[][] distances = new short[count][];
+        int next = -1;
+        for (int v = 0; v < bound; v++) {
+            if (graph.getVertex(v) != null
+                && (next < 0 || graph.getDegree(v) > graph.getDegree(next))) {
+                next = v;
+            }
+        }
+        int chosen = 0;
+        while (chosen < count && next >= 0) {
+            BreadthFirstSearch.search(graph, next, distance, predecessor, queue);
+            short[] row = new short[bound];
+            for (int v = 0; v < bound; v++) {
+                if (distance[v] > Short.MAX_VALUE) {
+                    throw new IllegalStateException("path too long to store: " + distance[v]);
+                }
+                row[v] = (short) distance[v];
+                if (distance[v] != BreadthFirstSearch.UNREACHED
+                    && (nearest[v] == BreadthFirstSearch.UNREACHED || distance[v] < nearest[v])) {
+                    nearest[v] = distance[v];
+                }
+            }
+            landmarks[chosen] = next;
+            distances[chosen++] = row;
+            next = -1;
+            for (int v = 0; v < bound; v++) {
+                if (nearest[v] > 0 && (next < 0 || nearest[v] > nearest[next])) {
+                    next = v; // farthest vertex from the landmarks, landmarks have 0
+                }
+            }
+        }
+        return new LandmarkOracle(Arrays.copyOf(landmarks, chosen),
+            Arrays.copyOf(distances, chosen));
+    }
+
+    /**
+     * Gets the landmarks
+     *
+     * @return id of every landmark, in the order they were chosen
+     */
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Checks whether the landmark of a row reaches a vertex
+     */
+    private static boolean reaches(short[] row, int vertex) {
+        return vertex >= 0 && vertex < row.length && row[vertex] >= 0;
+    }
+
+    /**
+     * Gets a lower bound on the number of edges between two vertices, from the landmarks that
+     * reach both of them
+     *
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return the bound, 0 if no landmark reaches both
+     */
+    public int getLowerBound(int source, int target) {
+        int lower = 0;
+        for (short[] row : distances) {
+            if (reaches(row, source) && reaches(row, target)) {
+                lower = Math.max(lower, Math.abs(row[source] - row[target]));
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * Gets an upper bound on the number of edges between two vertices, the length of the
+     * shortest path through a landmark
+     *
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return the bound, {@link Integer#MAX_VALUE} if no landmark reaches both
+     */
+    public int getUpperBound(int source, int target) {
+        int upper = Integer.MAX_VALUE;
+        for (short[] row : distances) {
+            if (reaches(row, source) && reaches(row, target)) {
+                upper = Math.min(upper, row[source] + row[target]);
+            }
+        }
+        return upper;
+    }
+
+    /**
+     * Checks whether the landmarks prove that there is no path between two vertices, which is
+     * the case if a landmark reaches only one of them
+     *
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return true if there is no path, false if there may be one
+     */
+    public boolean isSeparated(int source, int target) {
+        for (short[] row : distances) {
+            if (reaches(row, source) != reaches(row, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the heap taken by the distance rows
+     *
+     * @return number of bytes of the rows
+     */
+    public long getSizeInBytes() {
+        long size = 0;
+        for (short[] row : distances) {
+            size += 16 + 2L * row.length;
+        }
+        return size;
+    }
+}
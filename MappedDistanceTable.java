@@ -0,0 +1,342 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * All pairs shortest path distances of an unweighted graph, kept outside the heap in a memory
+ * mapped file with one byte per pair.
+ *
+ * Word ladder distances are short, so one byte is enough for a distance: {@link #UNREACHABLE}
+ * marks a pair with no path. Row s holds the distances from the vertex with id s. Every row is
+ * filled by a {@link BreadthFirstSearch} and written straight into the mapping, so the heap only
+ * holds the scratch arrays of the searches, and the garbage collector never sees the table
+ * however many words there are. The operating system pages the rows in and out as they are read.
+ *
+ * Predecessors are not stored. A path is rebuilt from the target back to the source, by stepping
+ * each time to a neighbor whose distance from the source is one less.
+ *
+ * A mapped buffer holds at most 2 GB, so the rows are spread over segments of whole rows. The file
+ * is deleted as soon as it is mapped, the mapping stays valid until the table is garbage
+ * collected. A table is never changed once it has been computed and can be read by several
+ * threads at once.
+ *
+ * Every table takes V * V bytes of disk, and a mapping only gives them back when the garbage
+ * collector unmaps it, which may not happen for a long time with so little heap in use. An owner
+ * that replaces its table therefore {@link #retire()}s the old one: once the last query that
+ * {@link #acquire()}d it has released it, the file is truncated, which gives the disk space back
+ * at once. A graph that changes often then only holds the disk of the tables still being read.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class MappedDistanceTable {
+
+    /**
+     * Stored for a pair of vertices with no path between them
+     */
+    public static final int UNREACHABLE = 255;
+
+    private static final long SEGMENT_BYTES = Integer.MAX_VALUE; // largest mapped buffer
+
+    /**
+     * Fills the rows of a range of sources, splitting the range in halves until it is small
+     * enough for one worker, like the tasks of {@link PathTable}
+     */
+    private static class RowRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int ROWS_PER_TASK = 16; // sources searched by one leaf task
+
+        private IndexedGraph<?> graph;
+        private MappedDistanceTable table;
+        private int from; // first source, inclusive
+        private int to; // last source, exclusive
+
+        RowRangeTask(IndexedGraph<?> graph, MappedDistanceTable table, int from, int to) {
+            this.graph = graph;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                table.computeRows(graph, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowRangeTask(graph, table, from, middle),
+                    new RowRangeTask(graph, table, middle, to));
+            }
+        }
+    }
+
+    private int bound; // number of ids, the length of every row
+    private int rowsPerSegment; // rows in every segment, the last one may have fewer
+    private MappedByteBuffer[] segments; // the rows, rowsPerSegment after each other
+    private FileChannel channel; // the deleted file, open until its space is given back
+    private AtomicInteger readers; // queries between acquire and release
+    private volatile boolean retired; // whether queries may no longer acquire the table
+    private AtomicBoolean freed; // whether the file has been truncated
+
+    /**
+     * Constructor for this class
+     *
+     * @param bound number of vertex ids
+     * @param rowsPerSegment rows in every segment
+     * @param segments the mapped segments
+     * @param channel the file of the segments
+     */
+    private MappedDistanceTable(int bound, int rowsPerSegment, MappedByteBuffer[] segments,
+        FileChannel channel) {
+        this.bound = bound;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments = segments;
+        this.channel = channel;
+        this.readers = new AtomicInteger();
+        this.freed = new AtomicBoolean();
+    }
+
+    /**
+     * Computes the table of a graph in a new file, by running a {@link BreadthFirstSearch} from
+     * every vertex
+     *
+     * @param graph the graph
+     * @param directory directory of the file, null for the default temporary directory
+     * @param parallelism number of threads the searches are spread over
+     * @return the table
+     * @throws IOException if the file can not be made or mapped
+     * @throws IllegalStateException if a shortest path is too long to be stored in a byte
+     */
+    public static MappedDistanceTable compute(IndexedGraph<?> graph, String directory,
+        int parallelism) throws IOException {
+        return compute(graph, directory, parallelism, SEGMENT_BYTES);
+    }
+
+    /**
+     * Computes the table of a graph with segments of at most the given size, so that tests can
+     * use several segments on a small graph
+     */
+    static MappedDistanceTable compute(IndexedGraph<?> graph, String directory, int parallelism,
+        long segmentBytes) throws IOException {
+        int bound = graph.getIdBound();
+        int rowsPerSegment =
+            (int) Math.max(1, Math.min(bound, segmentBytes / Math.max(bound, 1)));
+        MappedByteBuffer[] segments = new MappedByteBuffer[(bound + rowsPerSegment - 1)
+            / rowsPerSegment];
+        Path file = directory == null ? Files.createTempFile("distances", ".table")
+            : Files.createTempFile(Paths.get(directory), "distances", ".table");
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            for (int k = 0; k < segments.length; k++) {
+                int rows = Math.min(rowsPerSegment, bound - k * rowsPerSegment);
+                segments[k] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) k * rowsPerSegment * bound, (long) rows * bound);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                free(channel); // segments mapped before the failure are never read
+            }
+            throw e;
+        } finally {
+            try {
+                Files.delete(file); // the mappings keep the content
+            } catch (IOException e) {
+                file.toFile().deleteOnExit(); // systems which can not delete a mapped file
+            }
+        }
+        MappedDistanceTable table =
+            new MappedDistanceTable(bound, rowsPerSegment, segments, channel);
+        try {
+            if (parallelism == 1) {
+                table.computeRows(graph, 0, bound);
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new RowRangeTask(graph, table, 0, bound));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } catch (RuntimeException e) {
+            table.retire(); // nobody will read it
+            throw e;
+        }
+        return table;
+    }
+
+    /**
+     * Runs a search from every source in a range and writes its row into the mapping
+     *
+     * @param graph the graph searched
+     * @param from first source, inclusive
+     * @param to last source, exclusive
+     */
+    private void computeRows(IndexedGraph<?> graph, int from, int to) {
+        int[] distance = new int[bound];
+        int[] predecessor = new int[bound];
+        int[] queue = new int[bound];
+        byte[] row = new byte[bound];
+        for (int source = from; source < to; source++) {
+            if (graph.getVertex(source) == null) {
+                Arrays.fill(row, (byte) UNREACHABLE); // id of a removed vertex
+            } else {
+                BreadthFirstSearch.search(graph, source, distance, predecessor, queue);
+                for (int k = 0; k < bound; k++) {
+                    if (distance[k] == BreadthFirstSearch.UNREACHED) {
+                        row[k] = (byte) UNREACHABLE;
+                    } else if (distance[k] >= UNREACHABLE) {
+                        throw new IllegalStateException("path too long to store: " + distance[k]);
+                    } else {
+                        row[k] = (byte) distance[k];
+                    }
+                }
+            }
+            // every thread writes through its own view, at the place of its own rows
+            ByteBuffer segment = segments[source / rowsPerSegment].duplicate();
+            segment.position((source % rowsPerSegment) * bound);
+            segment.put(row);
+        }
+    }
+
+    /**
+     * Gets the number of edges on a shortest path
+     *
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return the distance, 0 if source equals target, -1 if there is no path
+     */
+    public int getDistance(int source, int target) {
+        if (source < 0 || source >= bound || target < 0 || target >= bound) {
+            return -1;
+        }
+        int distance = segments[source / rowsPerSegment]
+            .get((source % rowsPerSegment) * bound + target) & 0xFF;
+        return distance == UNREACHABLE ? -1 : distance;
+    }
+
+    /**
+     * Gets the vertices on a shortest path, from source to target
+     *
+     * @param graph the graph the table was computed from
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return the path, empty if source equals target or if there is no path
+     */
+    public <E> List<E> getPath(IndexedGraph<E> graph, int source, int target) {
+        List<E> path = new ArrayList<>();
+        int distance = getDistance(source, target);
+        if (distance <= 0) {
+            return path;
+        }
+        path.add(graph.getVertex(target));
+        // a vertex at distance d always has a neighbor at distance d-1
+        for (int vertex = target; distance > 0; distance--) {
+            int degree = graph.getDegree(vertex);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = graph.getNeighborId(vertex, i);
+                if (getDistance(source, neighbor) == distance - 1) {
+                    vertex = neighbor;
+                    break;
+                }
+            }
+            path.add(graph.getVertex(vertex));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Registers a query that is about to read the table. A query that has acquired the table must
+     * {@link #release()} it when it is done.
+     *
+     * @return true if the table can be read until it is released, false if it was retired and
+     *         must not be read
+     */
+    public boolean acquire() {
+        readers.incrementAndGet();
+        if (retired) {
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ends a read started by a successful {@link #acquire()}. The last query to release a retired
+     * table gives its disk space back.
+     */
+    public void release() {
+        if (readers.decrementAndGet() == 0 && retired) {
+            free();
+        }
+    }
+
+    /**
+     * Retires the table once its owner has replaced it: no query can acquire it anymore, and its
+     * disk space is given back as soon as no query reads it
+     */
+    public void retire() {
+        retired = true;
+        if (readers.get() == 0) {
+            free();
+        }
+    }
+
+    /**
+     * Truncates the file of the table, once
+     */
+    private void free() {
+        if (freed.compareAndSet(false, true)) {
+            free(channel);
+        }
+    }
+
+    /**
+     * Truncates and closes a file whose mappings are never read again, so it does not matter
+     * that the garbage collector unmaps them later
+     *
+     * @param channel the file
+     */
+    private static void free(FileChannel channel) {
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            // systems which can not truncate a mapped file give the space back with the mapping
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the file is deleted already
+            }
+        }
+    }
+
+    /**
+     * Checks whether the disk space of the table has been given back, for tests
+     */
+    boolean isFreed() {
+        return freed.get();
+    }
+
+    /**
+     * Gets the size of the table, all of it outside the heap
+     *
+     * @return number of bytes mapped
+     */
+    public long getSizeInBytes() {
+        return (long) bound * bound;
+    }
+}
@@ -0,0 +1,391 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * All pairs shortest path data of an unweighted graph.
+ *
+ * For every source vertex s the table keeps one row of predecessors (the vertex before t on a
+ * shortest path from s to t) and one row of distances (number of edges from s to t, -1 if t can
+ * not be reached). Rows are indexed by the vertex ids of an {@link IndexedGraph}. Paths are not
+ * stored, they are rebuilt from the predecessors when asked for.
+ *
+ * After the graph changes, {@link #update(IndexedGraph, GraphChangeLog)} brings the table up to
+ * date without recomputing it from scratch: an added edge only lowers the distances it shortens,
+ * and a removed edge only forces new searches from the sources whose shortest path trees used it.
+ * The update makes a new table, a table is never changed once it has been computed and can be
+ * read by several threads at once.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class PathTable {
+
+    /**
+     * Fills the table rows of a range of source vertices, splitting the range in halves until it
+     * is small enough for one worker. Every worker has its own scratch arrays and writes only the
+     * rows of its own sources, so the workers never share mutable state.
+     */
+    private static class SourceRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int ROWS_PER_TASK = 16; // sources searched by one leaf task
+
+        private IndexedGraph<?> graph;
+        private PathTable table;
+        private int from; // first source, inclusive
+        private int to; // last source, exclusive
+
+        SourceRangeTask(IndexedGraph<?> graph, PathTable table, int from, int to) {
+            this.graph = graph;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                table.computeRows(graph, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SourceRangeTask(graph, table, from, middle),
+                    new SourceRangeTask(graph, table, middle, to));
+            }
+        }
+    }
+
+    private int[][] predecessors; // predecessors[s][t] is the vertex before t on a path from s
+    private short[][] distances; // distances[s][t] is the number of edges from s to t, -1 if none
+
+    /**
+     * Constructor for this class. Creates a table with room for the given number of ids and no
+     * rows.
+     *
+     * @param bound number of vertex ids
+     */
+    private PathTable(int bound) {
+        this.predecessors = new int[bound][];
+        this.distances = new short[bound][];
+    }
+
+    /**
+     * Makes a table from rows read back from a file, see {@link GraphSnapshotFile}. The arrays
+     * are used as they are, they must not be changed afterwards.
+     *
+     * @param predecessors predecessor row of every source id, null for unused ids
+     * @param distances distance row of every source id, null for unused ids
+     * @return the table
+     */
+    static PathTable of(int[][] predecessors, short[][] distances) {
+        PathTable table = new PathTable(distances.length);
+        table.predecessors = predecessors;
+        table.distances = distances;
+        return table;
+    }
+
+    /**
+     * Computes the table of a graph by running a {@link BreadthFirstSearch} from every vertex
+     *
+     * @param graph the graph
+     * @param parallelism number of threads the searches are spread over
+     * @return the table
+     */
+    public static PathTable compute(IndexedGraph<?> graph, int parallelism) {
+        int bound = graph.getIdBound();
+        PathTable table = new PathTable(bound);
+        if (parallelism == 1) {
+            table.computeRows(graph, 0, bound);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new SourceRangeTask(graph, table, 0, bound));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Runs a search from every source in a range and stores its rows
+     *
+     * @param graph the graph searched
+     * @param from first source, inclusive
+     * @param to last source, exclusive
+     */
+    private void computeRows(IndexedGraph<?> graph, int from, int to) {
+        int bound = graph.getIdBound();
+        int[] distance = new int[bound];
+        int[] queue = new int[bound];
+        for (int i = from; i < to; i++) { // for each source vertex
+            computeRow(graph, i, distance, queue);
+        }
+    }
+
+    /**
+     * Runs a search from one source and stores its row, or drops the row if no vertex has the id
+     *
+     * @param graph the graph searched
+     * @param source the source
+     * @param distance scratch array with room for every id
+     * @param queue scratch array with room for every id
+     */
+    private void computeRow(IndexedGraph<?> graph, int source, int[] distance, int[] queue) {
+        if (graph.getVertex(source) == null) {
+            predecessors[source] = null; // id of a removed vertex
+            distances[source] = null;
+            return;
+        }
+        predecessors[source] = new int[graph.getIdBound()];
+        BreadthFirstSearch.search(graph, source, distance, predecessors[source], queue);
+        distances[source] = toShorts(distance);
+    }
+
+    /**
+     * Copies a row of distances into the compact form stored in the table
+     *
+     * @param distance distances computed by {@link BreadthFirstSearch}
+     * @return the same distances as shorts
+     */
+    private static short[] toShorts(int[] distance) {
+        short[] row = new short[distance.length];
+        for (int k = 0; k < distance.length; k++) {
+            if (distance[k] > Short.MAX_VALUE) {
+                throw new IllegalStateException("path too long to store: " + distance[k]);
+            }
+            row[k] = (short) distance[k];
+        }
+        return row;
+    }
+
+    /**
+     * Gets the number of edges on a shortest path
+     *
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return the distance, 0 if source equals target, -1 if there is no path
+     */
+    public int getDistance(int source, int target) {
+        if (source < 0 || source >= distances.length || distances[source] == null || target < 0
+            || target >= distances[source].length) {
+            return -1;
+        }
+        return distances[source][target];
+    }
+
+    /**
+     * Gets the vertex before the target on a shortest path from the source
+     *
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return id of the predecessor, {@link BreadthFirstSearch#UNREACHED} if there is none
+     */
+    public int getPredecessor(int source, int target) {
+        if (getDistance(source, target) <= 0) {
+            return BreadthFirstSearch.UNREACHED;
+        }
+        return predecessors[source][target];
+    }
+
+    /**
+     * Gets the vertices on a shortest path, from source to target
+     *
+     * @param graph the graph the table belongs to
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return the path, empty if source equals target or if there is no path
+     */
+    public <E> List<E> getPath(IndexedGraph<E> graph, int source, int target) {
+        List<E> path = new ArrayList<>();
+        if (getDistance(source, target) <= 0) {
+            return path;
+        }
+        // walk the predecessors back from the destination to the source
+        int[] row = predecessors[source];
+        for (int v = target; v != BreadthFirstSearch.UNREACHED; v = row[v]) {
+            path.add(graph.getVertex(v));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Brings the table up to date with the changes recorded in a log.
+     *
+     * Sources whose shortest path tree used a removed edge get a new search. Every added edge
+     * (u, v) is then checked against every row: only if it shortens the distance from the source
+     * to u or v does a search continue from there, and it only visits the vertices whose
+     * distance goes down.
+     *
+     * This table is never changed. The result is a new table which shares the rows that stayed
+     * the same and has copies of the others, so threads still reading this table are not
+     * disturbed.
+     *
+     * @param graph the graph after the changes, with the same ids as when the table was built
+     * @param log the changes made since the table was built or last updated, not overflowed
+     * @return the updated table, or null if so many sources were affected that the table should
+     *         be computed again instead
+     */
+    public PathTable update(IndexedGraph<?> graph, GraphChangeLog log) {
+        int bound = graph.getIdBound();
+        int oldBound = distances.length;
+        // sources whose trees used a removed edge
+        boolean[] stale = new boolean[bound];
+        int staleCount = 0;
+        for (int i = 0; i < log.size(); i++) {
+            if (log.getKind(i) != GraphChangeLog.EDGE_REMOVED) {
+                continue;
+            }
+            int u = log.getFirstId(i);
+            int v = log.getSecondId(i);
+            if (u >= oldBound || v >= oldBound) {
+                continue; // the edge was added and removed since the table was built
+            }
+            for (int s = 0; s < oldBound; s++) {
+                if (!stale[s] && predecessors[s] != null
+                    && (predecessors[s][v] == u || predecessors[s][u] == v)) {
+                    stale[s] = true;
+                    staleCount++;
+                }
+            }
+        }
+        if (staleCount > bound / 2) {
+            return null; // cheaper to search from every source again
+        }
+        PathTable next = new PathTable(bound);
+        boolean[] copied = new boolean[bound]; // rows of next that are not shared with this table
+        for (int s = 0; s < oldBound; s++) {
+            if (distances[s] == null) {
+                continue;
+            }
+            if (bound > oldBound) { // make room for new vertices, which have no path to anything
+                next.predecessors[s] = Arrays.copyOf(predecessors[s], bound);
+                next.distances[s] = Arrays.copyOf(distances[s], bound);
+                Arrays.fill(next.predecessors[s], oldBound, bound, BreadthFirstSearch.UNREACHED);
+                Arrays.fill(next.distances[s], oldBound, bound, (short) -1);
+                copied[s] = true;
+            } else {
+                next.predecessors[s] = predecessors[s];
+                next.distances[s] = distances[s];
+            }
+        }
+        for (int s = 0; s < bound; s++) {
+            if (graph.getVertex(s) == null && next.distances[s] != null) { // removed vertex
+                // drop its row and its column
+                next.predecessors[s] = null;
+                next.distances[s] = null;
+                for (int row = 0; row < bound; row++) {
+                    if (next.distances[row] != null && next.distances[row][s] >= 0) {
+                        next.copyRow(row, copied);
+                        next.predecessors[row][s] = BreadthFirstSearch.UNREACHED;
+                        next.distances[row][s] = -1;
+                    }
+                }
+            } else if (graph.getVertex(s) != null && next.distances[s] == null) { // new vertex
+                next.predecessors[s] = new int[bound];
+                next.distances[s] = new short[bound];
+                Arrays.fill(next.predecessors[s], BreadthFirstSearch.UNREACHED);
+                Arrays.fill(next.distances[s], (short) -1);
+                next.distances[s][s] = 0;
+                copied[s] = true;
+            }
+        }
+        int[] distance = new int[bound];
+        int[] queue = new int[bound];
+        for (int s = 0; s < bound; s++) {
+            if (stale[s]) {
+                next.computeRow(graph, s, distance, queue); // fresh arrays
+                copied[s] = true;
+            }
+        }
+        // lower the distances shortened by the added edges
+        for (int i = 0; i < log.size(); i++) {
+            if (log.getKind(i) != GraphChangeLog.EDGE_ADDED) {
+                continue;
+            }
+            int u = log.getFirstId(i);
+            int v = log.getSecondId(i);
+            if (!hasEdge(graph, u, v)) {
+                continue; // removed again later on
+            }
+            for (int s = 0; s < bound; s++) {
+                short[] row = next.distances[s];
+                if (row == null) {
+                    continue;
+                }
+                if (row[u] >= 0 && (row[v] < 0 || row[u] + 1 < row[v])) {
+                    next.copyRow(s, copied);
+                    next.lower(graph, s, v, row[u] + 1, u, queue);
+                } else if (row[v] >= 0 && (row[u] < 0 || row[v] + 1 < row[u])) {
+                    next.copyRow(s, copied);
+                    next.lower(graph, s, u, row[v] + 1, v, queue);
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Replaces a row shared with an older table by a copy, before it is written to
+     *
+     * @param source the row
+     * @param copied which rows are already copies, updated
+     */
+    private void copyRow(int source, boolean[] copied) {
+        if (!copied[source]) {
+            predecessors[source] = predecessors[source].clone();
+            distances[source] = distances[source].clone();
+            copied[source] = true;
+        }
+    }
+
+    /**
+     * Lowers the distance from a source to a vertex and continues breadth first to the vertices
+     * whose distance goes down as a result
+     *
+     * @param graph the graph
+     * @param source the row
+     * @param start the vertex reached through a new edge
+     * @param startDistance its new distance
+     * @param from the vertex before start on the new path
+     * @param queue scratch array with room for every id
+     */
+    private void lower(IndexedGraph<?> graph, int source, int start, int startDistance, int from,
+        int[] queue) {
+        short[] row = distances[source];
+        int[] predecessor = predecessors[source];
+        row[start] = (short) startDistance;
+        predecessor[start] = from;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int vertex = queue[head++];
+            int next = row[vertex] + 1;
+            int degree = graph.getDegree(vertex);
+            for (int k = 0; k < degree; k++) {
+                int neighbor = graph.getNeighborId(vertex, k);
+                if (row[neighbor] < 0 || next < row[neighbor]) {
+                    row[neighbor] = (short) next;
+                    predecessor[neighbor] = vertex;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether two ids are neighbors
+     */
+    private static boolean hasEdge(IndexedGraph<?> graph, int u, int v) {
+        int degree = graph.getDegree(u);
+        for (int k = 0; k < degree; k++) {
+            if (graph.getNeighborId(u, k) == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
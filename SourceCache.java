@@ -0,0 +1,291 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of single source shortest path results.
+ *
+ * For a source vertex the cache keeps the distance and predecessor rows of a
+ * {@link BreadthFirstSearch} from it. A query for a source that is not cached runs the search for
+ * just that source. When the rows take more memory than the budget, the least recently used
+ * sources are evicted. All the rows are dropped when the graph changes, which is detected from the
+ * graph version passed with every query.
+ *
+ * One cache can serve queries from several threads without a global lock. The rows of a graph
+ * version are a generation in a concurrent map, and a query for a newer version replaces the whole
+ * generation. A query for an older version, from a thread still reading an older snapshot, gets a
+ * row searched for it alone and leaves the newer rows alone. Hits only stamp the row they read,
+ * misses search outside of any lock, and only the eviction of the oldest rows takes turns.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class SourceCache {
+
+    private static final int ENTRY_OVERHEAD = 96; // bytes of the map entry and array headers
+
+    /**
+     * The cached result of one search
+     */
+    private static class Row {
+        short[] distance; // number of edges from the source, -1 if unreachable
+        int[] predecessor; // previous vertex on a shortest path from the source
+        long bytes; // memory taken by the row
+        volatile long lastUsed; // tick of the last query that read the row
+    }
+
+    /**
+     * The rows computed for one graph version
+     */
+    private static class Generation {
+        private int version; // graph version the rows were computed at
+        private ConcurrentHashMap<Integer, Row> rows; // source -> row
+        private AtomicLong used; // bytes taken by the rows
+
+        Generation(int version) {
+            this.version = version;
+            this.rows = new ConcurrentHashMap<>();
+            this.used = new AtomicLong();
+        }
+    }
+
+    /**
+     * Scratch space of the searches of one thread
+     */
+    private static class Scratch {
+        private int[] distance = new int[0];
+        private int[] queue = new int[0];
+    }
+
+    private AtomicReference<Generation> generation; // rows of the newest graph version seen
+    private volatile long budget; // most bytes the rows may take
+    private AtomicLong clock; // ticks handed out to the rows as they are read
+    private ReentrantLock evictLock; // held while the oldest rows are dropped
+    private LongAdder hits; // queries answered from the cache
+    private LongAdder misses; // queries that needed a search
+    private LongAdder evictions; // rows dropped to stay within the budget
+    private ThreadLocal<Scratch> scratch; // scratch space of the searches
+
+    /**
+     * Constructor for this class. Creates an empty cache.
+     *
+     * @param budget most bytes the cached rows may take
+     */
+    public SourceCache(long budget) {
+        this.generation = new AtomicReference<>(new Generation(0));
+        this.budget = budget;
+        this.clock = new AtomicLong();
+        this.evictLock = new ReentrantLock();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.scratch = ThreadLocal.withInitial(Scratch::new);
+    }
+
+    /**
+     * Gets the number of edges on a shortest path
+     *
+     * @param graph the graph
+     * @param graphVersion version of the graph, the cache is cleared when it changes
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return the distance, 0 if source equals target, -1 if there is no path or no such vertex
+     */
+    public int getDistance(IndexedGraph<?> graph, int graphVersion, int source, int target) {
+        Row row = row(graph, graphVersion, source);
+        if (row == null || target < 0 || target >= row.distance.length) {
+            return -1;
+        }
+        return row.distance[target];
+    }
+
+    /**
+     * Gets the vertices on a shortest path, from source to target
+     *
+     * @param graph the graph
+     * @param graphVersion version of the graph, the cache is cleared when it changes
+     * @param source id of the first vertex
+     * @param target id of the second vertex
+     * @return the path, empty if source equals target or if there is no path
+     */
+    public <E> List<E> getPath(IndexedGraph<E> graph, int graphVersion, int source, int target) {
+        List<E> path = new ArrayList<>();
+        Row row = row(graph, graphVersion, source);
+        if (row == null || target < 0 || target >= row.distance.length
+            || row.distance[target] <= 0) {
+            return path;
+        }
+        for (int v = target; v != BreadthFirstSearch.UNREACHED; v = row.predecessor[v]) {
+            path.add(graph.getVertex(v));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Gets the row of a source from the cache, or searches from the source and caches the row
+     *
+     * @return the row, null if no vertex has the source id
+     */
+    private Row row(IndexedGraph<?> graph, int graphVersion, int source) {
+        Generation current = generation.get();
+        while (graphVersion > current.version) { // the graph changed, drop the older rows
+            Generation next = new Generation(graphVersion);
+            current = generation.compareAndSet(current, next) ? next : generation.get();
+        }
+        boolean cached = graphVersion == current.version; // false for an older snapshot
+        Row row = cached ? current.rows.get(source) : null;
+        if (row != null) {
+            hits.increment();
+            row.lastUsed = clock.incrementAndGet();
+            return row;
+        }
+        if (graph.getVertex(source) == null) {
+            return null;
+        }
+        misses.increment();
+        row = search(graph, source);
+        if (!cached || row.bytes > budget) { // a row larger than the whole budget is not kept
+            return row;
+        }
+        Row raced = current.rows.putIfAbsent(source, row);
+        if (raced != null) {
+            return raced; // another thread searched from the same source meanwhile
+        }
+        if (current.used.addAndGet(row.bytes) > budget) {
+            evict(current);
+        }
+        return row;
+    }
+
+    /**
+     * Runs a search from a source in the scratch space of the calling thread
+     *
+     * @return the row of the source, stamped as just used
+     */
+    private Row search(IndexedGraph<?> graph, int source) {
+        Scratch space = scratch.get();
+        int bound = graph.getIdBound();
+        if (space.distance.length < bound) {
+            space.distance = new int[bound];
+            space.queue = new int[bound];
+        }
+        Row row = new Row();
+        row.predecessor = new int[bound];
+        BreadthFirstSearch.search(graph, source, space.distance, row.predecessor, space.queue);
+        row.distance = new short[bound];
+        for (int v = 0; v < bound; v++) {
+            row.distance[v] = (short) space.distance[v];
+        }
+        row.bytes = ENTRY_OVERHEAD + 6L * bound;
+        row.lastUsed = clock.incrementAndGet();
+        return row;
+    }
+
+    /**
+     * Drops the least recently used rows of a generation until the rows fit in the budget
+     */
+    private void evict(Generation current) {
+        evictLock.lock();
+        try {
+            if (current.used.get() <= budget) {
+                return; // another thread evicted meanwhile
+            }
+            // the stamps are copied first, hits keep changing them while the rows are sorted
+            List<long[]> oldest = new ArrayList<>(); // {tick, source} of every row
+            for (Map.Entry<Integer, Row> entry : current.rows.entrySet()) {
+                oldest.add(new long[] {entry.getValue().lastUsed, entry.getKey()});
+            }
+            oldest.sort((a, b) -> Long.compare(a[0], b[0]));
+            for (long[] entry : oldest) {
+                if (current.used.get() <= budget) {
+                    break;
+                }
+                Row row = current.rows.remove((int) entry[1]);
+                if (row != null) {
+                    current.used.addAndGet(-row.bytes);
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * Drops every cached row, the counters are kept
+     */
+    public void clear() {
+        Generation current = generation.get();
+        generation.compareAndSet(current, new Generation(current.version));
+    }
+
+    /**
+     * Sets the most bytes the cached rows may take, evicting rows if they no longer fit
+     *
+     * @param budget the budget in bytes
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        evict(generation.get());
+    }
+
+    /**
+     * Gets the most bytes the cached rows may take
+     *
+     * @return the budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets the bytes taken by the cached rows
+     *
+     * @return bytes used
+     */
+    public long getMemoryUsed() {
+        return generation.get().used.get();
+    }
+
+    /**
+     * Gets the number of cached sources
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return generation.get().rows.size();
+    }
+
+    /**
+     * Gets the number of queries answered from the cache
+     *
+     * @return number of hits
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of queries that needed a search
+     *
+     * @return number of misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of rows dropped to stay within the budget
+     *
+     * @return number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+}
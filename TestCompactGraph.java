@@ -0,0 +1,133 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is the test class that will test the CompactGraph against the Graph.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class TestCompactGraph {
+
+    Random random;
+    CompactGraph<String> compact;
+    Graph<String> graph;
+
+    /**
+     * This is the setup method that initializes specific fields
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(400);
+        compact = new CompactGraph<>();
+        graph = new Graph<>();
+    }
+
+    /**
+     * This is the teardown method that reset the initialized fields to null
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        random = null;
+        compact = null;
+        graph = null;
+    }
+
+    /**
+     * Checks that the compact graph has the same vertices, ids and edges as the graph
+     */
+    private void checkSameAsGraph() {
+        assertEquals("number of vertices", graph.vertices.size(), compact.getVertexCount());
+        int directed = 0;
+        for (String vertex : graph.getAllVertices()) {
+            int id = compact.getId(vertex);
+            assertEquals("id of " + vertex, graph.getId(vertex), id);
+            Set<String> expected = new HashSet<>();
+            for (String neighbor : graph.getNeighbors(vertex))
+                expected.add(neighbor);
+            Set<String> actual = new HashSet<>();
+            for (String neighbor : compact.getNeighbors(vertex)) {
+                actual.add(neighbor);
+                if (! compact.isAdjacent(vertex, neighbor))
+                    fail(vertex + " not adjacent to its neighbor " + neighbor);
+            }
+            assertEquals("neighbors of " + vertex, expected, actual);
+            assertEquals("degree of " + vertex, expected.size(), compact.getDegree(id));
+            directed += expected.size();
+        }
+        assertEquals("number of edges", directed / 2, compact.getEdgeCount());
+    }
+
+    /**
+     * Test if the basic methods behave like the ones of Graph
+     */
+    @Test
+    public void test01_same_results_as_graph_on_simple_input() {
+        assertEquals("add null", null, compact.addVertex(null));
+        assertEquals("add", "CAT", compact.addVertex("CAT"));
+        assertEquals("add duplicate", null, compact.addVertex("CAT"));
+        compact.addVertex("RAT");
+        assertEquals("edge to a missing vertex", false, compact.addEdge("CAT", "HAT"));
+        assertEquals("loop", false, compact.addEdge("CAT", "CAT"));
+        assertEquals("edge", true, compact.addEdge("CAT", "RAT"));
+        assertEquals("repeated edge", true, compact.addEdge("RAT", "CAT"));
+        assertEquals("number of edges", 1, compact.getEdgeCount());
+        assertEquals("adjacent", true, compact.isAdjacent("RAT", "CAT"));
+        assertEquals("neighbors of a missing vertex", null, compact.getNeighbors("HAT"));
+        assertEquals("remove", "CAT", compact.removeVertex("CAT"));
+        assertEquals("remove missing", null, compact.removeVertex("CAT"));
+        assertEquals("edges after removing a vertex", 0, compact.getEdgeCount());
+        assertEquals("neighbors after removing a vertex", false,
+            compact.getNeighbors("RAT").iterator().hasNext());
+    }
+
+    /**
+     * Test if random changes, with vertices going past the hash threshold and back, give the
+     * same graph as Graph
+     */
+    @Test
+    public void test02_same_graph_as_graph_on_random_changes() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            names.add("W" + i);
+            graph.addVertex("W" + i);
+            compact.addVertex("W" + i);
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int k = 0; k < 400; k++) {
+                // a few hubs get many neighbors so they are hashed and shrink again
+                String vertex1 = names.get(random.nextInt(random.nextBoolean() ? 3 : names.size()));
+                String vertex2 = names.get(random.nextInt(names.size()));
+                if (random.nextInt(8) < (round % 4 < 2 ? 6 : 1)) {
+                    graph.addEdge(vertex1, vertex2);
+                    compact.addEdge(vertex1, vertex2);
+                } else {
+                    graph.removeEdge(vertex1, vertex2);
+                    compact.removeEdge(vertex1, vertex2);
+                }
+            }
+            String removed = names.get(3 + random.nextInt(names.size() - 3));
+            graph.removeVertex(removed);
+            compact.removeVertex(removed);
+            String added = "N" + round;
+            names.add(added);
+            graph.addVertex(added);
+            compact.addVertex(added);
+            checkSameAsGraph();
+        }
+        CompactGraph<String> copy = CompactGraph.copyOf(graph);
+        compact = copy;
+        checkSameAsGraph();
+    }
+}
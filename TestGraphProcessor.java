@@ -1,15 +1,26 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
 
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
-import org.junit.Rule;
 import org.junit.Test;
-import org.junit.rules.ExpectedException;
 
 /**
  * This is the test class that will test the GraphProcessor.
@@ -189,4 +200,631 @@ public class TestGraphProcessor {
         if(! expectedDis.equals(actualDis))
             fail("expected: " + expectedDis + " actual: " + actualDis);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test if a parallel precomputation gives the same distances as the sequential one
+     */
+    @Test
+    public void test09_parallel_precomputation_matches_sequential() {
+        GraphProcessor parallel = new GraphProcessor();
+        parallel.setParallelism(4);
+        actualNum = test.populateGraph("word_list.txt");
+        parallel.populateGraph("word_list.txt");
+        String[] words = {"DEFINE", "SHINNY", "RAPINE", "ALIKE", "BELLIES", "JOLLIES", "HEADER"};
+        for (String word1 : words) {
+            for (String word2 : words) {
+                expectedDis = test.getShortestDistance(word1, word2);
+                actualDis = parallel.getShortestDistance(word1, word2);
+                if(! expectedDis.equals(actualDis))
+                    fail(word1 + " to " + word2 + " expected: " + expectedDis + " actual: " + actualDis);
+            }
+        }
+    }
+
+    /**
+     * Test if words of a second populateGraph call get connected to words of the first call
+     */
+    @Test
+    public void test10_populateGraph_connects_to_earlier_words() {
+        expectedList = new ArrayList<>();
+        expectedList.add("CAT");
+        expectedList.add("RAT");
+        expectedList.add("RAPT");
+        actualNum = test.populateGraph("test.txt");
+        if (actualNum != 6)
+            fail("expected: 6 actual: " + actualNum);
+        test.populateGraph("word_list.txt"); // RAPT is only in word_list.txt
+        actualList = test.getShortestPath("cat", "rapt");
+        if(! expectedList.equals(actualList))
+            fail("expected: " + expectedList + " actual: " + actualList);
+    }
+
+    /**
+     * Test if changes made directly to the graph are seen by the next query
+     */
+    @Test
+    public void test11_queries_follow_graph_changes() {
+        actualNum = test.populateGraph("word_list.txt");
+        expectedDis = 26;
+        actualDis = test.getShortestDistance("DEFINE", "SHINNY");
+        if(! expectedDis.equals(actualDis))
+            fail("expected: " + expectedDis + " actual: " + actualDis);
+        test.getGraph().addEdge("DEFINE", "SHINER");
+        expectedDis = 5; // DEFINE SHINER WHINER WHINEY WHINNY SHINNY
+        actualDis = test.getShortestDistance("DEFINE", "SHINNY");
+        if(! expectedDis.equals(actualDis))
+            fail("expected: " + expectedDis + " actual: " + actualDis);
+        test.getGraph().removeEdge("SHINER", "DEFINE");
+        expectedDis = 26;
+        actualDis = test.getShortestDistance("DEFINE", "SHINNY");
+        if(! expectedDis.equals(actualDis))
+            fail("expected: " + expectedDis + " actual: " + actualDis);
+    }
+
+    /**
+     * Test if the on demand mode finds shortest paths of the same length as the precomputed mode
+     */
+    @Test
+    public void test12_on_demand_mode_matches_precomputed_mode() {
+        checkModeMatchesPrecomputed(GraphProcessor.QueryMode.ON_DEMAND);
+    }
+
+    /**
+     * Test if the A* mode finds shortest paths of the same length as the precomputed mode
+     */
+    @Test
+    public void test13_a_star_mode_matches_precomputed_mode() {
+        checkModeMatchesPrecomputed(GraphProcessor.QueryMode.A_STAR);
+    }
+
+    /**
+     * Checks that a query mode gives the same distances as the precomputed mode on word_list.txt,
+     * and that its paths are valid word ladders of that length
+     */
+    private void checkModeMatchesPrecomputed(GraphProcessor.QueryMode mode) {
+        GraphProcessor onDemand = new GraphProcessor();
+        onDemand.setQueryMode(mode);
+        actualNum = test.populateGraph("word_list.txt");
+        onDemand.populateGraph("word_list.txt");
+        String[] words = {"DEFINE", "SHINNY", "RAPINE", "ALIKE", "BELLIES", "JOLLIES", "HEADER"};
+        for (String word1 : words) {
+            for (String word2 : words) {
+                expectedDis = test.getShortestDistance(word1, word2);
+                actualDis = onDemand.getShortestDistance(word1, word2);
+                if(! expectedDis.equals(actualDis))
+                    fail(word1 + " to " + word2 + " expected: " + expectedDis + " actual: " + actualDis);
+                actualList = onDemand.getShortestPath(word1, word2);
+                if (actualList.size() != (actualDis < 0 ? 0 : actualDis + 1))
+                    fail(word1 + " to " + word2 + " path: " + actualList);
+                for (int i = 0; i + 1 < actualList.size(); i++)
+                    if (! WordProcessor.isAdjacent(actualList.get(i), actualList.get(i + 1)))
+                        fail(word1 + " to " + word2 + " path: " + actualList);
+            }
+        }
+    }
+
+    /**
+     * Test if the cached mode gives the same distances as the precomputed mode
+     */
+    @Test
+    public void test14_cached_mode_matches_precomputed_mode() {
+        checkModeMatchesPrecomputed(GraphProcessor.QueryMode.CACHED);
+    }
+
+    /**
+     * Test if the cache counts hits and misses, stays in its budget and forgets changed graphs
+     */
+    @Test
+    public void test15_cached_mode_hits_misses_and_invalidation() {
+        test.setQueryMode(GraphProcessor.QueryMode.CACHED);
+        actualNum = test.populateGraph("word_list.txt");
+        SourceCache cache = test.getSourceCache();
+        cache.setBudget(2 * (96 + 6L * test.getGraph().getIdBound())); // room for two sources
+        test.getShortestDistance("DEFINE", "SHINNY");
+        test.getShortestDistance("DEFINE", "RAPINE");
+        test.getShortestDistance("BELLIES", "JOLLIES");
+        test.getShortestDistance("HEADER", "JOLLIES");
+        if (cache.getHitCount() != 1 || cache.getMissCount() != 3)
+            fail("expected: 1 hit 3 misses actual: " + cache.getHitCount() + " hits "
+                + cache.getMissCount() + " misses");
+        if (cache.size() != 2 || cache.getEvictionCount() != 1)
+            fail("expected: 2 rows 1 eviction actual: " + cache.size() + " rows "
+                + cache.getEvictionCount() + " evictions");
+        test.getGraph().addEdge("DEFINE", "SHINER");
+        expectedDis = 5;
+        actualDis = test.getShortestDistance("DEFINE", "SHINNY");
+        if(! expectedDis.equals(actualDis))
+            fail("expected: " + expectedDis + " actual: " + actualDis);
+        // a query on an older snapshot leaves the rows of the newer one alone
+        test.getShortestDistance("BELLIES", "JOLLIES");
+        expectedNum = 2;
+        Graph<String> graph = test.getGraph();
+        cache.getDistance(graph, graph.getVersion() - 1, graph.getId("HEADER"),
+            graph.getId("JOLLIES"));
+        actualNum = cache.size();
+        if (expectedNum != actualNum)
+            fail("expected: " + expectedNum + " rows actual: " + actualNum);
+    }
+
+    /**
+     * Test if queries from several threads only see whole graphs while another thread changes it
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void test16_concurrent_queries_during_graph_changes() throws Exception {
+        actualNum = test.populateGraph("word_list.txt");
+        test.shortestPathPrecomputation();
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(() -> {
+                while (!done.get()) {
+                    Integer distance = test.getShortestDistance("DEFINE", "SHINNY");
+                    List<String> path = test.getShortestPath("DEFINE", "SHINNY");
+                    // 26 before the new edge, 5 after it
+                    if (distance != 26 && distance != 5)
+                        errors.add("distance " + distance);
+                    if (path.size() != 27 && path.size() != 6)
+                        errors.add("path " + path);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        test.updateGraph(graph -> graph.addEdge("DEFINE", "SHINER"));
+        test.populateGraphInBackground("test.txt").get();
+        done.set(true);
+        for (Thread reader : readers)
+            reader.join();
+        if (! errors.isEmpty())
+            fail("unexpected answers: " + errors.subList(0, Math.min(5, errors.size())));
+        expectedDis = 5;
+        actualDis = test.getShortestDistance("DEFINE", "SHINNY");
+        if(! expectedDis.equals(actualDis))
+            fail("expected: " + expectedDis + " actual: " + actualDis);
+    }
+
+    /**
+     * Test if the parallel ingestion builds the same graph as populateGraph, also on top of the
+     * words of an earlier call
+     */
+    @Test
+    public void test17_parallel_ingestion_matches_populateGraph() {
+        GraphProcessor parallel = new GraphProcessor();
+        parallel.setParallelism(4);
+        expectedNum = test.populateGraph("test.txt");
+        actualNum = parallel.populateGraphInParallel("test.txt");
+        if (expectedNum != actualNum)
+            fail("expected: " + expectedNum + " actual: " + actualNum);
+        expectedNum = test.populateGraph("word_list.txt");
+        actualNum = parallel.populateGraphInParallel("word_list.txt");
+        if (expectedNum != actualNum)
+            fail("expected: " + expectedNum + " actual: " + actualNum);
+        if (! test.getGraph().vertices.equals(parallel.getGraph().vertices))
+            fail("the graphs have different words");
+        if (! test.getGraph().edges.equals(parallel.getGraph().edges))
+            fail("the graphs have different edges");
+        if (parallel.getIngestionStats().getStageCount() != 6)
+            fail("expected: 6 stages actual: " + parallel.getIngestionStats());
+        expectedList = test.getShortestPath("cat", "rapt");
+        actualList = parallel.getShortestPath("cat", "rapt");
+        if(! expectedList.equals(actualList))
+            fail("expected: " + expectedList + " actual: " + actualList);
+        // a word removed from the graph is added and connected again
+        parallel.updateGraph(graph -> graph.removeVertex("HAT"));
+        parallel.populateGraphInParallel("test.txt");
+        if (! test.getGraph().edges.equals(parallel.getGraph().edges))
+            fail("the graphs have different edges after a word was read again");
+        expectedDis = 3;
+        actualDis = parallel.getShortestDistance("CAT", "WHEAT");
+        if(! expectedDis.equals(actualDis))
+            fail("expected: " + expectedDis + " actual: " + actualDis);
+    }
+
+    /**
+     * Test if a graph read back from a snapshot file answers like the graph it was saved from,
+     * and if stale or damaged snapshots are built again
+     */
+    @Test
+    public void test18_snapshot_file_round_trip_and_rebuild() throws Exception {
+        Path dictionary = Files.createTempFile("dictionary", ".txt");
+        Path snapshot = Files.createTempFile("graph", ".snapshot");
+        try {
+            Files.copy(Paths.get("test.txt"), dictionary, StandardCopyOption.REPLACE_EXISTING);
+            // the empty snapshot file is damaged, so the graph is built and saved
+            GraphProcessor built = GraphSnapshotFile.loadOrBuild(snapshot.toString(),
+                dictionary.toString(), true);
+            GraphProcessor loaded = GraphSnapshotFile.read(snapshot.toString(),
+                dictionary.toString());
+            if (loaded == null)
+                fail("a fresh snapshot was read as stale");
+            if (! built.getGraph().edges.equals(loaded.getGraph().edges))
+                fail("the graphs have different edges");
+            for (String word1 : built.getGraph().getAllVertices())
+                for (String word2 : built.getGraph().getAllVertices()) {
+                    expectedList = built.getShortestPath(word1, word2);
+                    actualList = loaded.getShortestPath(word1, word2);
+                    if (! expectedList.equals(actualList))
+                        fail("expected: " + expectedList + " actual: " + actualList);
+                }
+
+            // removed vertices leave no gap in the ids of the file
+            built.updateGraph(graph -> graph.removeVertex("HAT"));
+            built.saveSnapshot(snapshot.toString(), dictionary.toString());
+            loaded = GraphSnapshotFile.read(snapshot.toString(), null);
+            if (! built.getGraph().edges.equals(loaded.getGraph().edges))
+                fail("the graphs have different edges after a removal");
+            expectedDis = built.getShortestDistance("CAT", "WHEAT");
+            actualDis = loaded.getShortestDistance("CAT", "WHEAT");
+            if(! expectedDis.equals(actualDis))
+                fail("expected: " + expectedDis + " actual: " + actualDis);
+
+            // a changed dictionary makes the snapshot stale
+            Files.write(dictionary, "\nkits\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+            if (GraphSnapshotFile.read(snapshot.toString(), dictionary.toString()) != null)
+                fail("a stale snapshot was read");
+            loaded = GraphSnapshotFile.loadOrBuild(snapshot.toString(), dictionary.toString(),
+                true);
+            if (! loaded.getGraph().vertices.contains("KITS"))
+                fail("the graph was not built again from the changed dictionary");
+
+            // a damaged snapshot is refused
+            try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+                file.seek(file.length() - 1);
+                int last = file.read();
+                file.seek(file.length() - 1);
+                file.write(last ^ 1);
+            }
+            try {
+                GraphSnapshotFile.read(snapshot.toString(), dictionary.toString());
+                fail("a damaged snapshot was read");
+            } catch (IOException e) {
+                // expected
+            }
+            loaded = GraphSnapshotFile.loadOrBuild(snapshot.toString(), dictionary.toString(),
+                false);
+            expectedNum = built.getGraph().vertices.size() + 2; // HAT is back, and KITS
+            actualNum = loaded.getGraph().vertices.size();
+            if (expectedNum != actualNum)
+                fail("expected: " + expectedNum + " actual: " + actualNum);
+        } finally {
+            Files.deleteIfExists(dictionary);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Test if the mapped mode gives the same distances as the precomputed mode, with the table
+     * spread over several segments, and after the graph changes
+     */
+    @Test
+    public void test19_mapped_mode_matches_precomputed_mode() throws Exception {
+        checkModeMatchesPrecomputed(GraphProcessor.QueryMode.MAPPED);
+        CsrGraph<String> graph = test.getGraph().freeze();
+        PathTable table = PathTable.compute(graph, 1);
+        MappedDistanceTable mapped = MappedDistanceTable.compute(graph, null, 2, 1000);
+        for (int source = 0; source < graph.getIdBound(); source++)
+            for (int target = 0; target < graph.getIdBound(); target++)
+                if (table.getDistance(source, target) != mapped.getDistance(source, target))
+                    fail(source + " to " + target + " expected: " + table.getDistance(source,
+                        target) + " actual: " + mapped.getDistance(source, target));
+        test.setQueryMode(GraphProcessor.QueryMode.MAPPED);
+        test.getGraph().addEdge("DEFINE", "SHINER");
+        expectedDis = 5;
+        actualDis = test.getShortestDistance("DEFINE", "SHINNY");
+        if(! expectedDis.equals(actualDis))
+            fail("expected: " + expectedDis + " actual: " + actualDis);
+        if (test.getShortestPath("DEFINE", "SHINNY").size() != 6)
+            fail("path: " + test.getShortestPath("DEFINE", "SHINNY"));
+        // a retired table stays readable by the query holding it, and is freed once released
+        if (! mapped.acquire())
+            fail("a table in use could not be acquired");
+        mapped.retire();
+        if (mapped.acquire() || mapped.isFreed())
+            fail("a retired table was acquired again or freed while read");
+        if (table.getDistance(0, 1) != mapped.getDistance(0, 1))
+            fail("a retired table could not be read by the query holding it");
+        mapped.release();
+        if (! mapped.isFreed())
+            fail("a retired table was not freed after its last read");
+    }
+
+    /**
+     * Test if the landmark mode gives the same distances as the precomputed mode, and if the
+     * landmark bounds hold for every pair of words
+     */
+    @Test
+    public void test20_landmark_mode_matches_precomputed_mode() {
+        checkModeMatchesPrecomputed(GraphProcessor.QueryMode.LANDMARK);
+        GraphProcessor landmarks = new GraphProcessor();
+        landmarks.populateGraph("word_list.txt");
+        landmarks.setLandmarkCount(4);
+        List<String> words = new ArrayList<>(test.getGraph().vertices);
+        for (int i = 0; i < words.size(); i += 7) {
+            for (int j = 0; j < words.size(); j += 5) {
+                String word1 = words.get(i);
+                String word2 = words.get(j);
+                int distance = word1.equals(word2) ? 0 : test.getShortestDistance(word1, word2);
+                int[] bounds = landmarks.getDistanceBounds(word1, word2);
+                boolean valid = distance < 0
+                    ? bounds[0] < 0 || bounds[0] == 0 && bounds[1] == Integer.MAX_VALUE
+                    : bounds[0] >= 0 && bounds[0] <= distance && bounds[1] >= distance;
+                if (! valid)
+                    fail(word1 + " to " + word2 + " distance: " + distance + " bounds: "
+                        + bounds[0] + " " + bounds[1]);
+            }
+        }
+    }
+
+    /**
+     * Test if the components match the distances, answer unreachable pairs without a search,
+     * and follow added and removed edges
+     */
+    @Test
+    public void test21_components_follow_graph_changes() {
+        test.populateGraph("word_list.txt");
+        int count = test.getComponentCount();
+        int words = 0;
+        int components = 0;
+        for (Map.Entry<Integer, Integer> entry : test.getComponentSizes().entrySet()) {
+            words += entry.getKey() * entry.getValue();
+            components += entry.getValue();
+        }
+        if (words != test.getGraph().vertices.size() || components != count)
+            fail("sizes " + test.getComponentSizes() + " do not add up to " + count);
+        List<String> all = new ArrayList<>(test.getGraph().vertices);
+        String word1 = all.get(0);
+        String word2 = null;
+        for (String word : all) {
+            boolean connected = test.getShortestDistance(word1, word) > 0;
+            if (connected != (test.isConnected(word1, word) && ! word.equals(word1)))
+                fail(word1 + " to " + word + " connected: " + connected);
+            if (! connected && ! word.equals(word1))
+                word2 = word;
+        }
+        test.setQueryMode(GraphProcessor.QueryMode.ON_DEMAND);
+        actualDis = test.getShortestDistance(word1, word2);
+        if (actualDis != -1 || test.getLastSearchCount() != 0)
+            fail("unreachable pair searched: " + actualDis + " " + test.getLastSearchCount());
+        String end1 = word1;
+        String end2 = word2;
+        test.updateGraph(graph -> graph.addEdge(end1, end2));
+        if (! test.isConnected(word1, word2) || test.getComponentCount() != count - 1)
+            fail("expected: " + (count - 1) + " actual: " + test.getComponentCount());
+        test.updateGraph(graph -> graph.removeEdge(end1, end2));
+        if (test.isConnected(word1, word2) || test.getComponentCount() != count)
+            fail("expected: " + count + " actual: " + test.getComponentCount());
+    }
+
+    /**
+     * Test if a batch of pairs gets the same answers, in the same order, as one query per pair
+     */
+    @Test
+    public void test22_batch_queries_match_single_queries() {
+        test.populateGraph("word_list.txt");
+        List<String> all = new ArrayList<>(test.getGraph().vertices);
+        List<String[]> pairs = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += 3)
+            pairs.add(new String[] {all.get(i % 20).toLowerCase(), all.get(i)});
+        pairs.add(new String[] {"DEFINE", "DEFINE"});
+        pairs.add(new String[] {"DEFINE", "NOT-A-WORD"});
+        pairs.add(new String[] {"define", "shinny"});
+        GraphProcessor.QueryMode[] modes = {GraphProcessor.QueryMode.PRECOMPUTED,
+            GraphProcessor.QueryMode.ON_DEMAND, GraphProcessor.QueryMode.MAPPED};
+        for (GraphProcessor.QueryMode mode : modes) {
+            test.setQueryMode(mode);
+            test.setParallelism(mode == GraphProcessor.QueryMode.ON_DEMAND ? 4 : 1);
+            List<Integer> distances = test.getShortestDistances(pairs);
+            List<List<String>> paths = test.getShortestPaths(pairs);
+            for (int k = 0; k < pairs.size(); k++) {
+                String[] pair = pairs.get(k);
+                expectedDis = test.getShortestDistance(pair[0], pair[1]);
+                if (! expectedDis.equals(distances.get(k)))
+                    fail(mode + " " + pair[0] + " to " + pair[1] + " expected: " + expectedDis
+                        + " actual: " + distances.get(k));
+                actualList = paths.get(k);
+                if (actualList.size() != (expectedDis < 0 ? 0 : expectedDis + 1))
+                    fail(mode + " " + pair[0] + " to " + pair[1] + " path: " + actualList);
+                for (int i = 0; i + 1 < actualList.size(); i++)
+                    if (! WordProcessor.isAdjacent(actualList.get(i), actualList.get(i + 1)))
+                        fail(mode + " " + pair[0] + " to " + pair[1] + " path: " + actualList);
+            }
+        }
+    }
+
+    /**
+     * Test if an incremental update of the shortest path table leaves the id of a vertex removed
+     * by an earlier update without a row
+     */
+    @Test
+    public void test23_table_update_skips_vertices_removed_earlier() {
+        Graph<String> graph = new Graph<>();
+        for (String word : new String[] {"CAT", "HAT", "HOT", "COT", "DOG", "DIG", "DUG", "BUG"})
+            graph.addVertex(word);
+        graph.addEdge("CAT", "HAT");
+        graph.addEdge("HAT", "HOT");
+        graph.addEdge("DOG", "DIG");
+        graph.addEdge("DIG", "DUG");
+        graph.addEdge("DUG", "BUG");
+        GraphChangeLog log = new GraphChangeLog(100);
+        graph.addGraphListener(log);
+        PathTable table = PathTable.compute(graph, 1);
+        int removed = graph.getId("HAT");
+        graph.removeVertex("HAT");
+        table = table.update(graph, log);
+        log.clear(100);
+        graph.addEdge("CAT", "COT");
+        graph.addEdge("COT", "HOT");
+        table = table.update(graph, log);
+        expectedNum = -1;
+        actualNum = table.getDistance(removed, removed);
+        if(expectedNum != actualNum)
+            fail("removed vertex expected: " + expectedNum + " actual: " + actualNum);
+        expectedNum = 2; // CAT COT HOT
+        actualNum = table.getDistance(graph.getId("CAT"), graph.getId("HOT"));
+        if(expectedNum != actualNum)
+            fail("expected: " + expectedNum + " actual: " + actualNum);
+    }
+
+    /**
+     * Test if words of a parallel ingestion that failed before they reached the graph can still
+     * be added and connected by a later call
+     */
+    @Test
+    public void test24_failed_parallel_ingestion_can_be_repeated() {
+        GraphProcessor failing = new GraphProcessor();
+        failing.setParallelism(4);
+        failing.populateGraphInParallel("test.txt");
+        GraphListener refuse = new GraphListener() {
+            public void vertexAdded(int id) {
+                throw new IllegalStateException("refused");
+            }
+            public void vertexRemoved(int id) {
+            }
+            public void edgeAdded(int id1, int id2) {
+            }
+            public void edgeRemoved(int id1, int id2) {
+            }
+        };
+        failing.getGraph().addGraphListener(refuse);
+        try {
+            failing.populateGraphInParallel("word_list.txt");
+            fail("the insert should have failed");
+        } catch (IllegalStateException e) {
+            // the words are not connected yet
+        }
+        failing.getGraph().removeGraphListener(refuse);
+        failing.populateGraph("word_list.txt");
+        test.populateGraph("test.txt");
+        test.populateGraph("word_list.txt");
+        if (! test.getGraph().vertices.equals(failing.getGraph().vertices))
+            fail("the graphs have different words");
+        if (! test.getGraph().edges.equals(failing.getGraph().edges))
+            fail("the graphs have different edges");
+    }
+
+    /**
+     * Test if snapshots with a correct checksum but a payload that does not describe a graph are
+     * refused with an IOException and built again
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void test25_snapshot_with_bad_payload_is_built_again() throws Exception {
+        Path snapshot = Files.createTempFile("graph", ".snapshot");
+        byte[] a = "A".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "B".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer[] payloads = {
+            ByteBuffer.allocate(12).putInt(1).putInt(0).putInt(-5), // negative word length
+            ByteBuffer.allocate(8).putInt(1000000).putInt(0), // more words than the file holds
+            ByteBuffer.allocate(38).putInt(2).putInt(2).putInt(1).put(a).putInt(1).put(b)
+                .putInt(0).putInt(3).putInt(2).putInt(1).putInt(0), // decreasing offsets
+            ByteBuffer.allocate(38).putInt(2).putInt(4).putInt(1).put(a).putInt(1).put(b)
+                .putInt(0).putInt(1).putInt(2).putInt(1).putInt(0), // fewer ids than m
+        };
+        try {
+            for (ByteBuffer payload : payloads) {
+                writeSnapshot(snapshot, "test.txt", 0, payload);
+                try {
+                    GraphSnapshotFile.read(snapshot.toString(), "test.txt");
+                    fail("a bad payload was read");
+                } catch (IOException e) {
+                    // expected
+                }
+                GraphProcessor loaded = GraphSnapshotFile.loadOrBuild(snapshot.toString(),
+                    "test.txt", false);
+                if (! loaded.getGraph().vertices.contains("CAT"))
+                    fail("the graph was not built again from the dictionary");
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Test if a word removed from the graph is connected again when its dictionary is read again
+     */
+    @Test
+    public void test26_removed_word_is_connected_again_by_populateGraph() {
+        test.populateGraph("test.txt");
+        test.updateGraph(graph -> graph.removeVertex("HAT"));
+        test.populateGraph("test.txt");
+        GraphProcessor fresh = new GraphProcessor();
+        fresh.populateGraph("test.txt");
+        if (! fresh.getGraph().edges.equals(test.getGraph().edges))
+            fail("expected: " + fresh.getGraph().edges + " actual: " + test.getGraph().edges);
+        expectedDis = 3;
+        actualDis = test.getShortestDistance("CAT", "WHEAT");
+        if(! expectedDis.equals(actualDis))
+            fail("expected: " + expectedDis + " actual: " + actualDis);
+    }
+
+    /**
+     * Test if snapshots whose shortest path table does not match its graph are refused with an
+     * IOException and built again
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void test27_snapshot_with_bad_table_is_built_again() throws Exception {
+        Path snapshot = Files.createTempFile("graph", ".snapshot");
+        byte[] a = "A".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "B".getBytes(StandardCharsets.UTF_8);
+        short[][] distances = {
+            {0, 1, 1, 0}, // B is its own predecessor
+            {0, 1, 1, 0}, // B is reached without a predecessor
+            {0, -1, -1, 0}, // B is unreached but has a predecessor
+            {1, 1, 1, 0}, // A is not at distance 0 from itself
+        };
+        int[][] predecessors = {
+            {-1, 1, 1, -1},
+            {-1, -1, 1, -1},
+            {-1, 0, 1, -1},
+            {-1, 0, 1, -1},
+        };
+        try {
+            for (int i = 0; i < distances.length; i++) {
+                ByteBuffer payload = ByteBuffer.allocate(62).putInt(2).putInt(2).putInt(1).put(a)
+                    .putInt(1).put(b).putInt(0).putInt(1).putInt(2).putInt(1).putInt(0);
+                for (short distance : distances[i])
+                    payload.putShort(distance);
+                for (int predecessor : predecessors[i])
+                    payload.putInt(predecessor);
+                writeSnapshot(snapshot, "test.txt", GraphSnapshotFile.FLAG_TABLE, payload);
+                try {
+                    GraphSnapshotFile.read(snapshot.toString(), "test.txt");
+                    fail("a bad table was read: " + i);
+                } catch (IOException e) {
+                    // expected
+                }
+                GraphProcessor loaded = GraphSnapshotFile.loadOrBuild(snapshot.toString(),
+                    "test.txt", true);
+                if (! loaded.getGraph().vertices.contains("CAT"))
+                    fail("the graph was not built again from the dictionary");
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Writes a snapshot file with a correct header and checksum around a payload
+     * @param snapshot the file
+     * @param dictionary the dictionary whose hash goes into the header
+     * @param flags the flags of the header
+     * @param payload the payload, written from its start to its position
+     * @throws IOException if a file can not be read or written
+     */
+    private static void writeSnapshot(Path snapshot, String dictionary, int flags,
+        ByteBuffer payload)
+        throws IOException {
+        payload.flip();
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.duplicate());
+        ByteBuffer file = ByteBuffer.allocate(GraphSnapshotFile.HEADER_SIZE + payload.remaining());
+        file.putInt(GraphSnapshotFile.MAGIC).putInt(GraphSnapshotFile.FORMAT_VERSION)
+            .putInt(flags).putInt(0).putLong(payload.remaining()).putLong(checksum.getValue())
+            .put(GraphSnapshotFile.hashOf(dictionary)).put(payload);
+        Files.write(snapshot, file.array());
+    }
+}
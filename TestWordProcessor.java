@@ -0,0 +1,186 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is the test class that will test the WordProcessor.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class TestWordProcessor {
+
+    Random random;
+
+    /**
+     * This is the setup method that initializes specific fields
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(400);
+    }
+
+    /**
+     * This is the teardown method that reset the initialized fields to null
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        random = null;
+    }
+
+    /**
+     * The original isAdjacent implementation, used as the reference for the allocation-free one.
+     */
+    private static boolean referenceIsAdjacent(String word1, String word2) {
+        if(Math.abs(word1.length()-word2.length())>1) return false;
+        if(word1.equals(word2))return false;
+        char[] words1 = word1.toCharArray();
+        char[] words2 = word2.toCharArray();
+        int mistakeAllow = 1;
+        if(word1.length()==word2.length()) {
+            for(int i=0; i<word1.length(); i++) {
+                if(words1[i]!=words2[i])mistakeAllow--;
+            }
+            return mistakeAllow>=0;
+        }else {
+            String largerStr = word1.length()>word2.length()?new String(word1):new String(word2);
+            String smallerStr = word1.length()<word2.length()?new String(word1):new String(word2);
+            for(int i=0; i<largerStr.length(); i++) {
+                StringBuilder sb = new StringBuilder(largerStr);
+                sb.deleteCharAt(i);
+                if(sb.toString().equals(smallerStr)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Makes a random word of the given length over a small alphabet, so that random pairs are
+     * often close to each other
+     */
+    private String randomWord(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('A' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Makes a word which is at most two random edits away from the given word
+     */
+    private String randomEdit(String word) {
+        StringBuilder sb = new StringBuilder(word);
+        int edits = random.nextInt(3);
+        for (int i = 0; i < edits; i++) {
+            int kind = random.nextInt(3);
+            if (kind == 0 && sb.length() > 0) {
+                sb.setCharAt(random.nextInt(sb.length()), (char) ('A' + random.nextInt(3)));
+            } else if (kind == 1 && sb.length() > 0) {
+                sb.deleteCharAt(random.nextInt(sb.length()));
+            } else {
+                sb.insert(random.nextInt(sb.length() + 1), (char) ('A' + random.nextInt(3)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Test the documented examples of replacement, addition and deletion.
+     */
+    @Test
+    public void test01_isAdjacent_on_simple_input() {
+        assertEquals("replacement", true, WordProcessor.isAdjacent("CAT", "HAT"));
+        assertEquals("addition", true, WordProcessor.isAdjacent("HEAT", "WHEAT"));
+        assertEquals("deletion", true, WordProcessor.isAdjacent("WHEAT", "HEAT"));
+        assertEquals("addition at the end", true, WordProcessor.isAdjacent("HAT", "HATE"));
+        assertEquals("same word", false, WordProcessor.isAdjacent("CAT", "CAT"));
+        assertEquals("two replacements", false, WordProcessor.isAdjacent("CAT", "COG"));
+        assertEquals("length differs by two", false, WordProcessor.isAdjacent("AT", "HEAT"));
+        assertEquals("replacement and addition", false, WordProcessor.isAdjacent("CAT", "HATE"));
+    }
+
+    /**
+     * Test isAdjacent against the original implementation on a large number of random pairs.
+     */
+    @Test
+    public void test02_isAdjacent_matches_reference_on_random_input() {
+        for (int i = 0; i < 200000; i++) {
+            String word1 = randomWord(random.nextInt(6));
+            String word2 = random.nextBoolean() ? randomEdit(word1) : randomWord(random.nextInt(6));
+            boolean expected = referenceIsAdjacent(word1, word2);
+            boolean actual = WordProcessor.isAdjacent(word1, word2);
+            if (expected != actual)
+                fail("word1: " + word1 + " word2: " + word2 + " expected: " + expected + " actual: "
+                    + actual);
+        }
+    }
+
+    /**
+     * Test editDistance on words that need replacements, additions and deletions.
+     */
+    @Test
+    public void test03_editDistance_on_simple_input() {
+        assertEquals("same word", 0, WordProcessor.editDistance("CAT", "CAT"));
+        assertEquals("one replacement", 1, WordProcessor.editDistance("CAT", "HAT"));
+        assertEquals("one addition", 1, WordProcessor.editDistance("HEAT", "WHEAT"));
+        assertEquals("shifted word", 2, WordProcessor.editDistance("ABCD", "BCDA"));
+        assertEquals("empty word", 5, WordProcessor.editDistance("", "WHEAT"));
+        assertEquals("cat to wheat", 3, WordProcessor.editDistance("CAT", "WHEAT"));
+    }
+
+    /**
+     * Reads the words of a file with getWordStream and with getMappedWordStream, with several
+     * window sizes, and checks that they are the same
+     */
+    private static void checkMappedWords(String filepath) throws IOException {
+        List<String> expected;
+        try (Stream<String> stream = WordProcessor.getWordStream(filepath)) {
+            expected = stream.collect(Collectors.toList());
+        }
+        try (Stream<String> stream = WordProcessor.getMappedWordStream(filepath)) {
+            assertEquals("words of " + filepath, expected, stream.collect(Collectors.toList()));
+        }
+        for (int window = 1; window <= 16; window++) {
+            try (Stream<String> stream = WordProcessor.getMappedWordStream(filepath, window)) {
+                assertEquals("words of " + filepath + " with window " + window, expected,
+                    stream.collect(Collectors.toList()));
+            }
+        }
+    }
+
+    /**
+     * Test if the memory mapped loader gives the same words as getWordStream.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void test04_getMappedWordStream_matches_getWordStream() throws Exception {
+        checkMappedWords("word_list.txt");
+        Path file = Files.createTempFile("words", ".txt");
+        try {
+            String text = "cat\r\n  Rat \n\n\t hat\rheat\r\n\r\nwheat\n ice cream \ncaf\u00e9\n"
+                + "abcdefghijklmnopqrstuvwxyz0123456789\r\n\u00fcber\r";
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            checkMappedWords(file.toString());
+            Files.write(file, "\n  \nlast".getBytes(StandardCharsets.UTF_8));
+            checkMappedWords(file.toString());
+            Files.write(file, new byte[0]);
+            checkMappedWords(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of words used to find adjacent word pairs without comparing every word against every
+ * other word.
+ *
+ * Every word is stored under each of its one-character wildcard patterns (CAT is stored under _AT,
+ * C_T and CA_), so two words of equal length that differ by one replacement always share a
+ * pattern. Every word is also stored under each of its one-character deletions (CAT is stored
+ * under AT, CT and CA), so a word that is one insertion away from a shorter word can be found by
+ * looking the shorter word up. Only words sharing a bucket are compared with
+ * {@link WordProcessor#isAdjacent(String, String)}, which keeps the edge set identical to
+ * comparing all pairs.
+ *
+ * The index is not synchronized. Only {@link #findAdjacent(String)} and the other reads may run on
+ * several threads at once, while no word is being added.
+ *
+ * @author Chentao Wang (cwang556@wisc.edu)
+ */
+public class WordIndex {
+
+    private static final char WILDCARD = '_';
+
+    private Set<String> words; // all the words in the index
+    private Map<String, List<String>> patterns; // wildcard pattern -> words with that pattern
+    private Map<String, List<String>> deletions; // word minus one char -> words it came from
+
+    /**
+     * Constructor for this class. Creates an empty index.
+     */
+    public WordIndex() {
+        words = new HashSet<>();
+        patterns = new HashMap<>();
+        deletions = new HashMap<>();
+    }
+
+    /**
+     * Adds a word to the index and returns the words already in the index which are adjacent to
+     * it.
+     *
+     * @param word the word to be added
+     * @return list of previously indexed words adjacent to word, empty if word was already indexed
+     */
+    public List<String> add(String word) {
+        if (!words.add(word)) {
+            return new ArrayList<>(); // edges of a known word were found when it was first added
+        }
+        String[] wildcards = wildcardsOf(word);
+        String[] shorter = deletionsOf(word);
+        List<String> adjacent = findAdjacent(word, wildcards, shorter);
+        insert(word, wildcards, shorter);
+        return adjacent;
+    }
+
+    /**
+     * Adds a word to the index without looking for the words adjacent to it. Together with
+     * {@link #findAdjacent(String)} this lets a batch of words be added first and their edges be
+     * found afterwards, on several threads.
+     *
+     * @param word the word to be added
+     * @return true if the word was not indexed before
+     */
+    public boolean register(String word) {
+        if (!words.add(word)) {
+            return false;
+        }
+        insert(word, wildcardsOf(word), deletionsOf(word));
+        return true;
+    }
+
+    /**
+     * Takes a word out of the index again, as if it had never been added
+     *
+     * @param word the word to be removed
+     * @return true if the word was indexed
+     */
+    public boolean remove(String word) {
+        if (!words.remove(word)) {
+            return false;
+        }
+        for (String pattern : wildcardsOf(word)) {
+            removeFrom(patterns, pattern, word);
+        }
+        for (String deleted : deletionsOf(word)) {
+            removeFrom(deletions, deleted, word);
+        }
+        return true;
+    }
+
+    /**
+     * Takes a word out of one bucket, and drops the bucket once it is empty
+     */
+    private static void removeFrom(Map<String, List<String>> buckets, String key, String word) {
+        List<String> bucket = buckets.get(key);
+        if (bucket != null && bucket.remove(word) && bucket.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+
+    /**
+     * Finds the indexed words adjacent to a word, which may be indexed itself. The index is only
+     * read, so several threads may call this at once as long as no word is being added.
+     *
+     * @param word the word
+     * @return list of the indexed words adjacent to word
+     */
+    public List<String> findAdjacent(String word) {
+        return findAdjacent(word, wildcardsOf(word), deletionsOf(word));
+    }
+
+    /**
+     * Gets the one-character wildcard patterns of a word (_AT, C_T and CA_ for CAT)
+     */
+    private static String[] wildcardsOf(String word) {
+        String[] wildcards = new String[word.length()];
+        char[] chars = word.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            chars[i] = WILDCARD;
+            wildcards[i] = new String(chars);
+            chars[i] = c;
+        }
+        return wildcards;
+    }
+
+    /**
+     * Gets the one-character deletions of a word (AT, CT and CA for CAT)
+     */
+    private static String[] deletionsOf(String word) {
+        String[] shorter = new String[word.length()];
+        for (int i = 0; i < shorter.length; i++) {
+            shorter[i] = word.substring(0, i) + word.substring(i + 1);
+        }
+        return shorter;
+    }
+
+    /**
+     * Collects the indexed words sharing a bucket with a word and keeps the adjacent ones
+     */
+    private List<String> findAdjacent(String word, String[] wildcards, String[] shorter) {
+        Set<String> candidates = new HashSet<>();
+        // words of the same length differing by one replacement
+        for (String pattern : wildcards) {
+            List<String> bucket = patterns.get(pattern);
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        // longer words which become this word after one deletion
+        List<String> longer = deletions.get(word);
+        if (longer != null) {
+            candidates.addAll(longer);
+        }
+        // shorter words which this word becomes after one deletion
+        for (String deleted : shorter) {
+            if (words.contains(deleted)) {
+                candidates.add(deleted);
+            }
+        }
+        List<String> adjacent = new ArrayList<>();
+        for (String candidate : candidates) {
+            // the wildcard character may appear in a word, so confirm every candidate
+            if (WordProcessor.isAdjacent(word, candidate)) {
+                adjacent.add(candidate);
+            }
+        }
+        return adjacent;
+    }
+
+    /**
+     * Puts a word into its wildcard and deletion buckets
+     */
+    private void insert(String word, String[] wildcards, String[] shorter) {
+        for (String pattern : wildcards) {
+            patterns.computeIfAbsent(pattern, k -> new ArrayList<>()).add(word);
+        }
+        for (String deleted : shorter) {
+            List<String> bucket = deletions.computeIfAbsent(deleted, k -> new ArrayList<>());
+            if (bucket.isEmpty() || !bucket.get(bucket.size() - 1).equals(word)) {
+                bucket.add(word); // the same deletion can come from two positions (BOOK -> BOK)
+            }
+        }
+    }
+
+    /**
+     * Checks whether the word is in the index
+     *
+     * @param word the word
+     * @return true if the word has been added
+     */
+    public boolean contains(String word) {
+        return words.contains(word);
+    }
+
+    /**
+     * Gets the number of distinct words in the index
+     *
+     * @return number of words
+     */
+    public int size() {
+        return words.size();
+    }
+}
@@ -1,11 +1,24 @@
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class contains some utility helper methods
@@ -72,6 +85,305 @@ public class WordProcessor {
             return Files.lines(Paths.get(filepath)).map(String :: trim).filter(x -> x!=null && !x.equals("")).map(String :: toUpperCase);
     }
     
+    /**
+     * Default size of the part of a file mapped into memory at a time by
+     * {@link #getMappedWordStream(String)}
+     */
+    static final int MAPPED_WINDOW = 64 * 1024 * 1024;
+
+    /**
+     * Whether String.toUpperCase turns the ASCII letters of the default locale into A to Z, so
+     * that bytes can be converted without it
+     */
+    private static final boolean ASCII_UPPER_CASE = "abcdefghijklmnopqrstuvwxyz".toUpperCase()
+        .equals("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+
+    /**
+     * Gets a Stream of the same words as {@link #getWordStream(String)}, read from a memory
+     * mapped file.
+     * 
+     * The file is mapped a window at a time and its bytes are scanned directly for line breaks
+     * (\n, \r or \r\n, as {@link Files#lines(java.nio.file.Path)}). Chars up to ' ' are cut from
+     * both ends of every line, as by {@link String#trim()}, and the letters are upper cased while
+     * the bytes are copied, so a line of ASCII text becomes a String in one step. A line with other
+     * bytes is decoded as UTF-8 and converted with trim and toUpperCase like getWordStream does.
+     * 
+     * The file is closed when the stream is closed, so the stream should be used in a
+     * try-with-resources statement. Java has no way to unmap a mapped buffer: the windows are
+     * dropped as the stream moves on and when it is closed, and their memory is given back when
+     * the garbage collector frees them.
+     * 
+     * @param filepath file path to the dictionary file
+     * @return Stream<String> stream of words read from the filepath
+     * @throws IOException exception resulting from accessing the filepath
+     */
+    public static Stream<String> getMappedWordStream(String filepath) throws IOException {
+        return getMappedWordStream(filepath, MAPPED_WINDOW);
+    }
+
+    /**
+     * Gets a Stream of words from a memory mapped file, mapping a given number of bytes at a time
+     * 
+     * @param filepath file path to the dictionary file
+     * @param window bytes mapped at a time, grown for a longer line
+     * @return Stream<String> stream of words read from the filepath
+     * @throws IOException exception resulting from accessing the filepath
+     */
+    static Stream<String> getMappedWordStream(String filepath, int window) throws IOException {
+        return getMappedWordStream(filepath, 0, Long.MAX_VALUE, window);
+    }
+
+    /**
+     * Gets a Stream of the words in a part of a memory mapped file. The part should start at the
+     * start of a line and end after a line break, as the parts of {@link #splitLines(String, int)}
+     * do, then reading the parts one after another gives the words of the whole file.
+     * 
+     * @param filepath file path to the dictionary file
+     * @param from position of the first byte of the part
+     * @param to position after the last byte of the part, cut to the size of the file
+     * @return Stream<String> stream of words read from the part
+     * @throws IOException exception resulting from accessing the filepath
+     */
+    public static Stream<String> getMappedWordStream(String filepath, long from, long to)
+        throws IOException {
+        return getMappedWordStream(filepath, from, to, MAPPED_WINDOW);
+    }
+
+    /**
+     * Gets a Stream of the words in a part of a memory mapped file, mapping a given number of
+     * bytes at a time
+     */
+    private static Stream<String> getMappedWordStream(String filepath, long from, long to,
+        int window) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ);
+        MappedWords words;
+        try {
+            words = new MappedWords(channel, from, Math.min(to, channel.size()), window);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(words,
+            Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(words::close);
+    }
+
+    /**
+     * Splits a file into parts of about the same size that end after a line break, so that the
+     * parts can be read on different threads with
+     * {@link #getMappedWordStream(String, long, long)}. A \r\n line break is never split.
+     * 
+     * @param filepath file path to the dictionary file
+     * @param parts number of parts wanted, fewer are made if the file has fewer lines
+     * @return the positions where the parts start, followed by the size of the file
+     * @throws IOException exception resulting from accessing the filepath
+     */
+    public static long[] splitLines(String filepath, int parts) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> starts = new ArrayList<>();
+            starts.add(0L);
+            ByteBuffer bytes = ByteBuffer.allocate(4096);
+            for (int part = 1; part < parts; part++) {
+                long start = Math.max(size * part / parts, starts.get(starts.size() - 1));
+                // move the start past the next line break
+                boolean found = false;
+                while (!found && start < size) {
+                    bytes.clear();
+                    int read = channel.read(bytes, start);
+                    for (int i = 0; i < read && !found; i++) {
+                        byte b = bytes.get(i);
+                        if (b == '\n') {
+                            start += i + 1;
+                            found = true;
+                        } else if (b == '\r') {
+                            start += i + 1;
+                            found = true;
+                            boolean newline = i + 1 < read ? bytes.get(i + 1) == '\n'
+                                : nextIsNewline(channel, start);
+                            if (newline) {
+                                start++; // keep \r\n together
+                            }
+                        }
+                    }
+                    if (!found) {
+                        start += read;
+                    }
+                }
+                if (start < size && start > starts.get(starts.size() - 1)) {
+                    starts.add(start);
+                }
+            }
+            long[] result = new long[starts.size() + 1];
+            for (int i = 0; i < starts.size(); i++) {
+                result[i] = starts.get(i);
+            }
+            result[starts.size()] = size;
+            return result;
+        }
+    }
+
+    /**
+     * Checks whether the byte at a position of a file is \n
+     */
+    private static boolean nextIsNewline(FileChannel channel, long position) throws IOException {
+        ByteBuffer next = ByteBuffer.allocate(1);
+        return channel.read(next, position) == 1 && next.get(0) == '\n';
+    }
+
+    /**
+     * Iterator over the words of a mapped file
+     */
+    private static class MappedWords implements Iterator<String> {
+        private FileChannel channel; // the file
+        private long stop; // position after the last byte to read
+        private int window; // bytes mapped at a time
+        private MappedByteBuffer buffer; // the mapped window, null once closed
+        private long bufferStart; // position of the window in the file
+        private long position; // position of the next line in the file
+        private byte[] chars; // scratch space for the chars of a word
+        private String next; // the next word, null if not found yet
+
+        MappedWords(FileChannel channel, long from, long to, int window) {
+            this.channel = channel;
+            this.position = from;
+            this.stop = to;
+            this.window = window;
+            this.chars = new byte[64];
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null && position < stop) {
+                    next = readLine();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String word = next;
+            next = null;
+            return word;
+        }
+
+        /**
+         * Reads the line at position and moves past it and its line break
+         * 
+         * @return the trimmed and upper cased line, null if it is empty
+         */
+        private String readLine() throws IOException {
+            int end = lineEnd();
+            while (end < 0) { // the line goes past the window, map again from its start
+                if (bufferStart == position) { // a line longer than a whole window
+                    window = (int) Math.min(Integer.MAX_VALUE - 8, 2L * window);
+                }
+                map(position);
+                end = lineEnd();
+            }
+            int limit = buffer.limit();
+            int from = (int) (position - bufferStart);
+            int to = end;
+            if (end == limit) {
+                position = stop; // last line without a line break before the stop
+            } else if (buffer.get(end) == '\r' && end + 1 < limit && buffer.get(end + 1) == '\n') {
+                position = bufferStart + end + 2; // \r\n is one line break
+            } else {
+                position = bufferStart + end + 1;
+            }
+            // bytes up to ' ' are ASCII in UTF-8 too, so trimming the bytes trims the chars
+            while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+                from++;
+            }
+            while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+                to--;
+            }
+            if (from == to) {
+                return null;
+            }
+            if (to - from > chars.length) {
+                chars = new byte[Math.max(to - from, 2 * chars.length)];
+            }
+            for (int i = from; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b < 0 || (b >= 'a' && b <= 'z' && !ASCII_UPPER_CASE)) {
+                    return decode(from, to).toUpperCase(); // not plain ASCII
+                }
+                chars[i - from] = b >= 'a' && b <= 'z' ? (byte) (b - ('a' - 'A')) : b;
+            }
+            return new String(chars, 0, to - from, StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Finds the end of the line at position in the mapped window
+         * 
+         * @return index in the window of the line break, the window limit for the last line of
+         *         the part, or -1 if the window ends first
+         */
+        private int lineEnd() throws IOException {
+            if (buffer == null || position >= bufferStart + buffer.limit()) {
+                map(position);
+            }
+            int limit = buffer.limit();
+            for (int i = (int) (position - bufferStart); i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') {
+                    // a \r at the end of the window may be followed by a \n in the next one
+                    return b == '\r' && i + 1 == limit && bufferStart + limit < stop ? -1 : i;
+                }
+            }
+            return bufferStart + limit == stop ? limit : -1;
+        }
+
+        /**
+         * Maps the window that starts at a position of the file
+         */
+        private void map(long start) throws IOException {
+            if (channel == null) {
+                throw new IOException("the stream is closed");
+            }
+            bufferStart = start;
+            long length = Math.min(window, stop - start);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+
+        /**
+         * Decodes bytes of the window as UTF-8, failing on malformed input as
+         * {@link Files#lines(java.nio.file.Path)} does
+         */
+        private String decode(int from, int to) throws IOException {
+            ByteBuffer line = buffer.duplicate();
+            line.limit(to);
+            line.position(from);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+            return decoder.decode(line).toString();
+        }
+
+        /**
+         * Closes the file and drops the mapped window
+         */
+        void close() {
+            buffer = null;
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
     /**
      * Adjacency between word1 and word2 is defined by:
      * if the difference between word1 and word2 is of
@@ -90,27 +402,67 @@ public class WordProcessor {
      * @return true if word1 and word2 are adjacent else false
      */
     public static boolean isAdjacent(String word1, String word2) {
-        if(Math.abs(word1.length()-word2.length())>1) return false;  // If the lengths of two String differ by 2 or more
-        if(word1.equals(word2))return false; // if word1 is equal to word2
-        char[] words1 = word1.toCharArray();
-        char[] words2 = word2.toCharArray();
-        int mistakeAllow = 1;
-        if(word1.length()==word2.length()) {
-            for(int i=0; i<word1.length(); i++) {
-                if(words1[i]!=words2[i])mistakeAllow--;
-            }
-            return mistakeAllow>=0;
-        }else {
-            String largerStr = word1.length()>word2.length()?new String(word1):new String(word2);
-            String smallerStr = word1.length()<word2.length()?new String(word1):new String(word2);
-            for(int i=0; i<largerStr.length(); i++) {
-                StringBuilder sb = new StringBuilder(largerStr);
-                sb.deleteCharAt(i);
-                if(sb.toString().equals(smallerStr)) return true;
-            }
-            return false;
+        int length1 = word1.length();
+        int length2 = word2.length();
+        if(Math.abs(length1-length2)>1) return false;  // If the lengths of two String differ by 2 or more
+        // let word1 be the longer word so a deletion from word1 can produce word2
+        if(length1<length2) {
+            String temp = word1;
+            word1 = word2;
+            word2 = temp;
+            length1 = length2;
+            length2 = word2.length();
+        }
+        int i = 0;
+        int j = 0;
+        boolean mistakeMade = false;
+        while(i<length1 && j<length2) {
+            if(word1.charAt(i)==word2.charAt(j)) {
+                i++;
+                j++;
+            }else {
+                if(mistakeMade) return false; // second difference found, stop scanning
+                mistakeMade = true;
+                if(length1==length2)j++; // replacement, skip the char in both words
+                i++; // otherwise skip the extra char of the longer word
+            }
+        }
+        // a trailing char left in the longer word is the one addition/deletion
+        if(i<length1) return !mistakeMade;
+        return mistakeMade; // equal words are not adjacent
+    }
+
+    /**
+     * Gets the edit (Levenshtein) distance between two words: the least number of one char
+     * replacements, additions and deletions that turn word1 into word2.
+     * 
+     * Every step of a word ladder is one such edit, so the edit distance is never more than the
+     * number of steps between two words and can be used to guide a search.
+     * 
+     * @param word1 first word
+     * @param word2 second word
+     * @return the edit distance
+     */
+    public static int editDistance(String word1, String word2) {
+        int length1 = word1.length();
+        int length2 = word2.length();
+        int[] previous = new int[length2+1]; // distances from the first i-1 chars of word1
+        int[] current = new int[length2+1]; // distances from the first i chars of word1
+        for(int j=0; j<=length2; j++)previous[j] = j;
+        for(int i=1; i<=length1; i++) {
+            current[0] = i;
+            char c = word1.charAt(i-1);
+            for(int j=1; j<=length2; j++) {
+                int replace = previous[j-1]+(c==word2.charAt(j-1)?0:1);
+                int delete = previous[j]+1;
+                int insert = current[j-1]+1;
+                current[j] = Math.min(replace, Math.min(delete, insert));
+            }
+            int[] temp = previous;
+            previous = current;
+            current = temp;
         }
-        
+        return previous[length2];
     }
     
-}
\ No newline at end of file
+}
\ No newline at end of file